@@ -3,10 +3,13 @@ package com.blissy.lottery;
 import com.blissy.lottery.commands.LotteryCommand;
 import com.blissy.lottery.currency.CurrencyManager;
 import com.blissy.lottery.currency.GemCurrency;
+import com.blissy.lottery.currency.SyncCurrencyAdapter;
 import com.blissy.lottery.currency.TokenCurrency;
 import com.blissy.lottery.currency.VaultCurrency;
+import com.blissy.lottery.gui.LotteryGUI;
 import com.blissy.lottery.listeners.PlayerListener;
 import com.blissy.lottery.managers.LotteryManager;
+import com.blissy.lottery.utils.RateLimiter;
 import org.bukkit.Bukkit;
 import org.bukkit.command.PluginCommand;
 import org.bukkit.configuration.file.FileConfiguration;
@@ -21,12 +24,14 @@ import java.util.logging.Level;
  */
 public class Lottery extends JavaPlugin {
     private static Lottery instance;
-    private CurrencyManager currencyManager;
+    private volatile CurrencyManager currencyManager; // replaced on reload, read by background tasks
     private LotteryManager lotteryManager;
     private net.milkbowl.vault.economy.Economy vaultEconomy;
     private me.realized.tokenmanager.TokenManagerPlugin tokenManager;
     private com.blissy.gemextension.GemExtensionPlugin gemExtension;
     private PlayerListener playerListener;
+    private LotteryGUI lotteryGUI;
+    private RateLimiter rateLimiter;
 
     @Override
     public void onEnable() {
@@ -56,6 +61,8 @@ public class Lottery extends JavaPlugin {
         lotteryManager.loadData();
         lotteryManager.startScheduler();
 
+        rateLimiter = new RateLimiter(getConfig());
+
         // Get and check the command
         PluginCommand command = getCommand("lottery");
         if (command == null) {
@@ -82,6 +89,7 @@ public class Lottery extends JavaPlugin {
         // Register listeners
         playerListener = new PlayerListener(this);
         getServer().getPluginManager().registerEvents(playerListener, this);
+        lotteryGUI = new LotteryGUI(this);
 
         getLogger().info("Lottery has been enabled!");
 
@@ -98,6 +106,10 @@ public class Lottery extends JavaPlugin {
             lotteryManager.stopScheduler();
         }
 
+        if (currencyManager != null) {
+            currencyManager.shutdown();
+        }
+
         getLogger().info("Lottery has been disabled!");
     }
 
@@ -120,8 +132,10 @@ public class Lottery extends JavaPlugin {
             getLogger().info("Configuration reloaded");
 
             // Reinitialize currency manager
+            currencyManager.shutdown();
             currencyManager = new CurrencyManager();
             setupCurrencies();
+            lotteryGUI.reload();
             getLogger().info("Currencies reloaded");
 
             // Reinitialize lottery manager
@@ -130,6 +144,8 @@ public class Lottery extends JavaPlugin {
             lotteryManager.startScheduler();
             getLogger().info("Lottery manager reloaded");
 
+            rateLimiter = new RateLimiter(getConfig());
+
             // Schedule status notification
             Bukkit.getScheduler().runTaskLater(this, () ->
                             lotteryManager.broadcastLotteryStatus(),
@@ -209,20 +225,28 @@ public class Lottery extends JavaPlugin {
 
     private void setupCurrencies() {
         FileConfiguration config = getConfig();
+        long balanceCacheMillis = config.getLong("gui.balance_cache_millis", 3000);
 
         // Load enabled currencies from config
         if (vaultEconomy != null && config.getBoolean("currencies.coins.enabled", true)) {
-            currencyManager.registerCurrency(new VaultCurrency(vaultEconomy));
+            // Worker threads are opt-in, since many Vault economies are not thread-safe
+            int threads = config.getInt("currencies.coins.threads", 0);
+            VaultCurrency currency = new VaultCurrency(vaultEconomy);
+            currencyManager.registerCurrency(threads > 0
+                    ? SyncCurrencyAdapter.onWorkerThreads(this, currency, threads, balanceCacheMillis)
+                    : SyncCurrencyAdapter.onMainThread(this, currency, balanceCacheMillis));
             getLogger().info("Registered Vault currency: " + vaultEconomy.currencyNamePlural());
         }
 
         if (tokenManager != null && config.getBoolean("currencies.tokens.enabled", true)) {
-            currencyManager.registerCurrency(new TokenCurrency(tokenManager));
+            currencyManager.registerCurrency(SyncCurrencyAdapter.onMainThread(this, new TokenCurrency(tokenManager),
+                    balanceCacheMillis));
             getLogger().info("Registered Token currency");
         }
 
         if (gemExtension != null && config.getBoolean("currencies.gems.enabled", true)) {
-            currencyManager.registerCurrency(new GemCurrency(gemExtension));
+            currencyManager.registerCurrency(SyncCurrencyAdapter.onMainThread(this, new GemCurrency(gemExtension),
+                    balanceCacheMillis));
             getLogger().info("Registered Gem currency");
         }
     }
@@ -251,6 +275,22 @@ public class Lottery extends JavaPlugin {
         return lotteryManager;
     }
 
+    /**
+     * Get the lottery menus.
+     * @return The lottery GUI
+     */
+    public LotteryGUI getLotteryGUI() {
+        return lotteryGUI;
+    }
+
+    /**
+     * Get the per-player rate limits.
+     * @return The rate limiter
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
     /**
      * Get the Vault economy.
      * @return The Vault economy
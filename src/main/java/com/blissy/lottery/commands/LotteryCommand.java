@@ -2,8 +2,12 @@ package com.blissy.lottery.commands;
 
 import com.blissy.lottery.Lottery;
 import com.blissy.lottery.currency.Currency;
-import com.blissy.lottery.gui.LotteryGUI;
+import com.blissy.lottery.draw.FairnessSimulator;
+import com.blissy.lottery.ledger.LedgerSnapshot;
+import com.blissy.lottery.ledger.TopEntrants;
+import com.blissy.lottery.utils.RateLimiter;
 import com.blissy.lottery.utils.TimeUtil;
+import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -11,6 +15,7 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 
+import java.io.File;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -21,6 +26,10 @@ import java.util.stream.Collectors;
 public class LotteryCommand implements CommandExecutor, TabCompleter {
     private final Lottery plugin;
 
+    private static final long DEFAULT_SIMULATED_DRAWS = 1_000_000;
+    private static final long MAX_SIMULATED_DRAWS = 100_000_000;
+    private static final int TOP_ENTRANTS_PER_PAGE = 10;
+
     public LotteryCommand(Lottery plugin) {
         this.plugin = plugin;
         plugin.getLogger().info("LotteryCommand registered");
@@ -48,7 +57,7 @@ public class LotteryCommand implements CommandExecutor, TabCompleter {
             // Open the lottery GUI
             plugin.getLogger().info("Opening lottery GUI for " + player.getName());
             try {
-                new LotteryGUI(plugin).openMainMenu(player);
+                plugin.getLotteryGUI().openMainMenu(player);
             } catch (Exception e) {
                 plugin.getLogger().log(Level.SEVERE, "Error opening lottery GUI", e);
                 player.sendMessage(ChatColor.RED + "An error occurred while opening the lottery GUI.");
@@ -72,7 +81,8 @@ public class LotteryCommand implements CommandExecutor, TabCompleter {
                     return true;
                 }
 
-                showLotteryInfo(infoPlayer);
+                // Only reads the ledgers, so it doesn't need the main thread
+                Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> showLotteryInfo(infoPlayer));
                 break;
 
             case "enter":
@@ -107,12 +117,41 @@ public class LotteryCommand implements CommandExecutor, TabCompleter {
                         return true;
                     }
 
+                    // Shares its limit with entries from the menu
+                    if (!plugin.getRateLimiter().tryAcquire(enterPlayer, RateLimiter.Action.ENTER)) {
+                        return true;
+                    }
+
                     plugin.getLotteryManager().addEntry(currency, enterPlayer, amount);
                 } catch (NumberFormatException e) {
                     enterPlayer.sendMessage(ChatColor.RED + "Invalid amount: " + args[2]);
                 }
                 break;
 
+            case "top":
+                if (!sender.hasPermission("pslottery.use")) {
+                    sender.sendMessage(ChatColor.RED + "You don't have permission to use this command.");
+                    return true;
+                }
+
+                if (args.length < 2) {
+                    sender.sendMessage(ChatColor.RED + "Usage: /lottery top <currency> [page]");
+                    return true;
+                }
+
+                if (!plugin.getCurrencyManager().hasCurrency(args[1].toLowerCase())) {
+                    sender.sendMessage(ChatColor.RED + "Unknown currency: " + args[1]);
+                    return true;
+                }
+
+                try {
+                    int page = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+                    showTopEntrants(sender, plugin.getCurrencyManager().getCurrency(args[1].toLowerCase()).get(), page);
+                } catch (NumberFormatException e) {
+                    sender.sendMessage(ChatColor.RED + "Invalid page: " + args[2]);
+                }
+                break;
+
             case "help":
                 showHelp(sender);
                 break;
@@ -134,6 +173,45 @@ public class LotteryCommand implements CommandExecutor, TabCompleter {
                 }
                 break;
 
+            case "export":
+                if (!sender.hasPermission("pslottery.admin")) {
+                    sender.sendMessage(ChatColor.RED + "You don't have permission to export lottery data.");
+                    return true;
+                }
+
+                File exportFile = plugin.getLotteryManager().exportData();
+                sender.sendMessage(ChatColor.GREEN + "Exporting lottery data to " + exportFile.getName() + "...");
+                break;
+
+            case "simulate":
+                if (!sender.hasPermission("pslottery.admin")) {
+                    sender.sendMessage(ChatColor.RED + "You don't have permission to simulate drawings.");
+                    return true;
+                }
+
+                if (args.length < 2) {
+                    sender.sendMessage(ChatColor.RED + "Usage: /lottery simulate <currency> [draws]");
+                    return true;
+                }
+
+                if (!plugin.getCurrencyManager().hasCurrency(args[1].toLowerCase())) {
+                    sender.sendMessage(ChatColor.RED + "Unknown currency: " + args[1]);
+                    return true;
+                }
+
+                try {
+                    long draws = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SIMULATED_DRAWS;
+                    if (draws <= 0 || draws > MAX_SIMULATED_DRAWS) {
+                        sender.sendMessage(ChatColor.RED + "Draws must be between 1 and " + MAX_SIMULATED_DRAWS + ".");
+                        return true;
+                    }
+
+                    simulateDrawings(sender, plugin.getCurrencyManager().getCurrency(args[1].toLowerCase()).get(), draws);
+                } catch (NumberFormatException e) {
+                    sender.sendMessage(ChatColor.RED + "Invalid number of draws: " + args[2]);
+                }
+                break;
+
             default:
                 if (sender instanceof Player) {
                     Player player = (Player) sender;
@@ -149,6 +227,64 @@ public class LotteryCommand implements CommandExecutor, TabCompleter {
         return true;
     }
 
+    private void simulateDrawings(CommandSender sender, Currency currency, long draws) {
+        LedgerSnapshot pool = plugin.getLotteryManager().getPoolSnapshot(currency);
+        if (pool.size() == 0) {
+            sender.sendMessage(ChatColor.RED + "No entries have been made for the " + currency.getName() + " lottery.");
+            return;
+        }
+
+        int places = plugin.getLotteryManager().getPrizeTiers(currency).length;
+        long seed = System.nanoTime();
+        sender.sendMessage(ChatColor.GOLD + "Simulating " + String.format("%,d", draws) + " " + currency.getName() +
+                " drawings...");
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            FairnessSimulator.Report report = new FairnessSimulator(pool, places).run(draws, seed, 0);
+
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                sender.sendMessage(ChatColor.GOLD + "[Lottery] " + ChatColor.WHITE + report.summary());
+                sender.sendMessage(ChatColor.GRAY + "Seed: " + seed);
+
+                // Show the players whose results are furthest from their share of the pool
+                for (int index : report.largestDeviations(5)) {
+                    String name = Bukkit.getOfflinePlayer(pool.playerId(index)).getName();
+                    sender.sendMessage(String.format("  %s%s%s: expected %.4f%%, won %.4f%% (%+.2f sigma)",
+                            ChatColor.WHITE, name != null ? name : pool.playerId(index).toString(), ChatColor.GRAY,
+                            report.expectedRate(index) * 100, report.observedRate(index) * 100,
+                            report.zScore(index)));
+                }
+            });
+        });
+    }
+
+    private void showTopEntrants(CommandSender sender, Currency currency, int page) {
+        List<TopEntrants.Entrant> ranking = plugin.getLotteryManager().getTopEntrants(currency);
+        if (ranking.isEmpty()) {
+            sender.sendMessage(ChatColor.RED + "No entries have been made for the " + currency.getName() + " lottery.");
+            return;
+        }
+
+        int pages = (ranking.size() + TOP_ENTRANTS_PER_PAGE - 1) / TOP_ENTRANTS_PER_PAGE;
+        if (page < 1 || page > pages) {
+            sender.sendMessage(ChatColor.RED + "Page must be between 1 and " + pages + ".");
+            return;
+        }
+
+        sender.sendMessage(ChatColor.GOLD + "" + ChatColor.BOLD + "===== Biggest " + currency.getName() +
+                " Entrants (" + page + "/" + pages + ") =====");
+
+        int first = (page - 1) * TOP_ENTRANTS_PER_PAGE;
+        int last = Math.min(first + TOP_ENTRANTS_PER_PAGE, ranking.size());
+        for (int i = first; i < last; i++) {
+            TopEntrants.Entrant entrant = ranking.get(i);
+            String name = Bukkit.getOfflinePlayer(entrant.getPlayerId()).getName();
+            sender.sendMessage(ChatColor.GOLD + "  #" + (i + 1) + " " + ChatColor.WHITE +
+                    (name != null ? name : entrant.getPlayerId().toString()) + ChatColor.GRAY + ": " +
+                    currency.formatAmount(entrant.getAmount()));
+        }
+    }
+
     private void showLotteryInfo(Player player) {
         plugin.getLogger().info("Showing lottery info to " + player.getName());
         player.sendMessage(ChatColor.GOLD + "" + ChatColor.BOLD + "===== Lottery Information =====");
@@ -202,11 +338,16 @@ public class LotteryCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage(ChatColor.GOLD + "/lottery info" + ChatColor.WHITE + " - View current lottery information");
         sender.sendMessage(ChatColor.GOLD + "/lottery enter <currency> <amount>" +
                 ChatColor.WHITE + " - Enter the lottery with specified currency and amount");
+        sender.sendMessage(ChatColor.GOLD + "/lottery top <currency> [page]" +
+                ChatColor.WHITE + " - View the biggest entrants in a lottery");
         sender.sendMessage(ChatColor.GOLD + "/lottery help" + ChatColor.WHITE + " - Show this help message");
 
         // Only show admin commands to users with the right permission
         if (sender.hasPermission("pslottery.admin")) {
             sender.sendMessage(ChatColor.GOLD + "/lottery reload" + ChatColor.WHITE + " - Reload the plugin configuration");
+            sender.sendMessage(ChatColor.GOLD + "/lottery export" + ChatColor.WHITE + " - Export lottery data as YAML");
+            sender.sendMessage(ChatColor.GOLD + "/lottery simulate <currency> [draws]" +
+                    ChatColor.WHITE + " - Check drawing fairness against the current pool");
         }
 
         sender.sendMessage(ChatColor.GOLD + "" + ChatColor.BOLD + "===========================");
@@ -215,17 +356,20 @@ public class LotteryCommand implements CommandExecutor, TabCompleter {
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String label, String[] args) {
         if (args.length == 1) {
-            List<String> completions = new ArrayList<>(Arrays.asList("info", "enter", "help"));
+            List<String> completions = new ArrayList<>(Arrays.asList("info", "enter", "top", "help"));
 
             // Only add admin commands for players with permission
             if (sender.hasPermission("pslottery.admin")) {
                 completions.add("reload");
+                completions.add("export");
+                completions.add("simulate");
             }
 
             return completions.stream()
                     .filter(s -> s.startsWith(args[0].toLowerCase()))
                     .collect(Collectors.toList());
-        } else if (args.length == 2 && args[0].equalsIgnoreCase("enter")) {
+        } else if (args.length == 2 && (args[0].equalsIgnoreCase("enter") || args[0].equalsIgnoreCase("top")
+                || args[0].equalsIgnoreCase("simulate"))) {
             return plugin.getCurrencyManager().getAllCurrencies().stream()
                     .map(Currency::getId)
                     .filter(s -> s.startsWith(args[1].toLowerCase()))
@@ -0,0 +1,65 @@
+package com.blissy.lottery.currency;
+
+import org.bukkit.entity.Player;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A currency whose balance operations complete asynchronously and can be batched.
+ * Operations are started from the main thread. Futures may complete on any thread;
+ * callers hop back to the main thread before touching the Bukkit API.
+ */
+public interface AsyncCurrency extends Currency {
+    /**
+     * Get a player's balance.
+     * @param player The player
+     * @return The balance
+     */
+    CompletableFuture<Long> getBalanceAsync(Player player);
+
+    /**
+     * Withdraw from several players. Each player's balance is checked and
+     * withdrawn as one step, so concurrent operations can't spend it twice.
+     * @param amounts The amount to take from each player
+     * @return The outcome for each player
+     */
+    CompletableFuture<Map<UUID, TransactionResult>> withdrawAll(Map<UUID, Long> amounts);
+
+    /**
+     * Deposit to several players.
+     * @param amounts The amount to give each player
+     * @return The outcome for each player
+     */
+    CompletableFuture<Map<UUID, TransactionResult>> depositAll(Map<UUID, Long> amounts);
+
+    /**
+     * Withdraw from a player if they have enough.
+     * @param player The player
+     * @param amount The amount to withdraw
+     * @return The outcome
+     */
+    default CompletableFuture<TransactionResult> withdrawAsync(Player player, long amount) {
+        return withdrawAll(Collections.singletonMap(player.getUniqueId(), amount))
+                .thenApply(results -> results.get(player.getUniqueId()));
+    }
+
+    /**
+     * Deposit to a player.
+     * @param player The player
+     * @param amount The amount to deposit
+     * @return The outcome
+     */
+    default CompletableFuture<TransactionResult> depositAsync(Player player, long amount) {
+        return depositAll(Collections.singletonMap(player.getUniqueId(), amount))
+                .thenApply(results -> results.get(player.getUniqueId()));
+    }
+
+    /**
+     * Release any threads this currency owns, after finishing queued operations.
+     */
+    default void close() {
+    }
+}
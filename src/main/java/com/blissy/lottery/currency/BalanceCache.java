@@ -0,0 +1,78 @@
+package com.blissy.lottery.currency;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Recently read balances for one currency, kept for a short time so menus can
+ * show them without asking the economy again.
+ * Balances are read in the background: a missing or expired balance starts a
+ * read and the last known value is shown meanwhile, or {@link Currency#BALANCE_LOADING}
+ * if there is none. Only for display; checks that decide whether money moves
+ * always read the provider.
+ */
+public class BalanceCache {
+    private final long ttlNanos;
+    private final Map<UUID, CachedBalance> balances = new ConcurrentHashMap<>();
+    private final Map<UUID, Object> loading = new ConcurrentHashMap<>(); // the read in progress per player
+
+    /**
+     * Create a cache.
+     * @param ttlMillis How long a balance is kept before it is read again, or 0 to read it every time
+     */
+    public BalanceCache(long ttlMillis) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttlMillis));
+    }
+
+    /**
+     * Get a player's balance, starting a read if it is not cached or has expired.
+     * @param playerId The player UUID
+     * @param loader Reads the balance from the provider
+     * @return The last known balance, or {@link Currency#BALANCE_LOADING} if it has not been read yet
+     */
+    public long get(UUID playerId, Supplier<CompletableFuture<Long>> loader) {
+        CachedBalance cached = balances.get(playerId);
+        if (cached != null && System.nanoTime() - cached.readAt < ttlNanos) {
+            return cached.balance;
+        }
+
+        Object read = new Object();
+        if (loading.putIfAbsent(playerId, read) == null) {
+            long readAt = System.nanoTime();
+            loader.get().whenComplete((balance, error) -> {
+                // Dropped if the balance was invalidated while it was being read
+                if (loading.remove(playerId, read) && error == null) {
+                    balances.put(playerId, new CachedBalance(balance, readAt));
+                }
+            });
+
+            // Providers on the calling thread have already answered
+            cached = balances.get(playerId);
+        }
+
+        return cached != null ? cached.balance : Currency.BALANCE_LOADING;
+    }
+
+    /**
+     * Forget a player's balance, after it changed or they left.
+     * @param playerId The player UUID
+     */
+    public void invalidate(UUID playerId) {
+        loading.remove(playerId);
+        balances.remove(playerId);
+    }
+
+    private static final class CachedBalance {
+        private final long balance;
+        private final long readAt;
+
+        private CachedBalance(long balance, long readAt) {
+            this.balance = balance;
+            this.readAt = readAt;
+        }
+    }
+}
@@ -2,10 +2,17 @@ package com.blissy.lottery.currency;
 
 import org.bukkit.entity.Player;
 
+import java.util.UUID;
+
 /**
  * Interface for currency types used in the lottery system.
  */
 public interface Currency {
+    /**
+     * Display balance returned while a player's balance has not been read yet.
+     */
+    long BALANCE_LOADING = -1;
+
     /**
      * Get the name of the currency.
      * @return The currency name
@@ -56,6 +63,23 @@ public interface Currency {
      */
     boolean hasBalance(Player player, long amount);
 
+    /**
+     * Get a player's balance for display. May be a few seconds out of date, so
+     * never use it to decide whether money can move.
+     * @param player The player
+     * @return The balance, or {@link #BALANCE_LOADING} while it is still being read
+     */
+    default long getDisplayBalance(Player player) {
+        return getBalance(player);
+    }
+
+    /**
+     * Forget anything remembered about a player, such as a cached balance.
+     * @param playerId The player UUID
+     */
+    default void forgetPlayer(UUID playerId) {
+    }
+
     /**
      * Get the identifier for this currency type.
      * @return The currency identifier
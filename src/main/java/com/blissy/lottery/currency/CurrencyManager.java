@@ -1,22 +1,30 @@
 package com.blissy.lottery.currency;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
 /**
  * Manages all currency types for the lottery system.
+ * Currencies are registered on the main thread; the list of all currencies is
+ * an immutable copy, so background tasks can read it while a reload registers new ones.
  */
 public class CurrencyManager {
-    private final Map<String, Currency> currencies = new HashMap<>();
+    private final Map<String, AsyncCurrency> currencies = new HashMap<>();
+    private volatile List<Currency> allCurrencies = Collections.emptyList();
 
     /**
      * Register a currency with the manager.
      * @param currency The currency to register
      */
-    public void registerCurrency(Currency currency) {
+    public void registerCurrency(AsyncCurrency currency) {
         currencies.put(currency.getId(), currency);
+        allCurrencies = Collections.unmodifiableList(new ArrayList<>(currencies.values()));
     }
 
     /**
@@ -29,11 +37,39 @@ public class CurrencyManager {
     }
 
     /**
-     * Get all registered currencies.
+     * Get a currency by its ID, with its asynchronous and bulk operations.
+     * @param id The currency ID
+     * @return The currency, or empty if not found
+     */
+    public Optional<AsyncCurrency> getAsyncCurrency(String id) {
+        return Optional.ofNullable(currencies.get(id));
+    }
+
+    /**
+     * Get all registered currencies. Safe to call from any thread.
      * @return Collection of currencies
      */
     public Collection<Currency> getAllCurrencies() {
-        return currencies.values();
+        return allCurrencies;
+    }
+
+    /**
+     * Forget anything the currencies remember about a player.
+     * @param playerId The player UUID
+     */
+    public void forgetPlayer(UUID playerId) {
+        for (AsyncCurrency currency : currencies.values()) {
+            currency.forgetPlayer(playerId);
+        }
+    }
+
+    /**
+     * Finish queued currency operations and release their threads.
+     */
+    public void shutdown() {
+        for (AsyncCurrency currency : currencies.values()) {
+            currency.close();
+        }
     }
 
     /**
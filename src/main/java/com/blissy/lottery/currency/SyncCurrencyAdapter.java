@@ -0,0 +1,234 @@
+package com.blissy.lottery.currency;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+
+/**
+ * Runs a synchronous currency's operations on an executor.
+ * By default operations run on the main thread, inline when called from it;
+ * thread-safe economies backed by a database can opt in to worker threads so
+ * their round trips stay off the main thread. Players are looked up on the main
+ * thread before the work is handed over. Each player's operations are serialized on one of
+ * a fixed set of striped locks, so a balance check and the withdrawal after it
+ * can't interleave with another operation on the same player.
+ */
+public class SyncCurrencyAdapter implements AsyncCurrency {
+    private static final int STRIPES = 64; // must be a power of two
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    private final Plugin plugin;
+    private final Currency currency;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final BalanceCache balances;
+
+    private SyncCurrencyAdapter(Plugin plugin, Currency currency, Executor executor, ExecutorService ownedExecutor,
+                                long balanceCacheMillis) {
+        this.plugin = plugin;
+        this.currency = currency;
+        this.executor = executor;
+        this.ownedExecutor = ownedExecutor;
+        this.balances = new BalanceCache(balanceCacheMillis);
+
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Adapt a currency whose plugin must be called from the main thread.
+     * @param plugin The plugin
+     * @param currency The currency
+     * @param balanceCacheMillis How long balances read for display are kept
+     * @return The adapter
+     */
+    public static SyncCurrencyAdapter onMainThread(Plugin plugin, Currency currency, long balanceCacheMillis) {
+        Executor mainThread = task -> {
+            if (Bukkit.isPrimaryThread() || !plugin.isEnabled()) {
+                task.run();
+            } else {
+                Bukkit.getScheduler().runTask(plugin, task);
+            }
+        };
+        return new SyncCurrencyAdapter(plugin, currency, mainThread, null, balanceCacheMillis);
+    }
+
+    /**
+     * Adapt a thread-safe currency, running its operations on worker threads.
+     * @param plugin The plugin
+     * @param currency The currency
+     * @param threads The number of worker threads
+     * @param balanceCacheMillis How long balances read for display are kept
+     * @return The adapter
+     */
+    public static SyncCurrencyAdapter onWorkerThreads(Plugin plugin, Currency currency, int threads,
+                                                      long balanceCacheMillis) {
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, threads), task -> {
+            Thread thread = new Thread(task, "PSLottery-Economy-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        return new SyncCurrencyAdapter(plugin, currency, workers, workers, balanceCacheMillis);
+    }
+
+    @Override
+    public CompletableFuture<Long> getBalanceAsync(Player player) {
+        return CompletableFuture.supplyAsync(() -> currency.getBalance(player), executor);
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, TransactionResult>> withdrawAll(Map<UUID, Long> amounts) {
+        return applyAll(amounts, true);
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, TransactionResult>> depositAll(Map<UUID, Long> amounts) {
+        return applyAll(amounts, false);
+    }
+
+    private CompletableFuture<Map<UUID, TransactionResult>> applyAll(Map<UUID, Long> amounts, boolean withdraw) {
+        // Look the players up here, on the main thread; the economies here only take online players
+        Map<UUID, Player> players = new LinkedHashMap<>();
+        for (UUID playerId : amounts.keySet()) {
+            players.put(playerId, Bukkit.getPlayer(playerId));
+        }
+        Map<UUID, Long> batch = new LinkedHashMap<>(amounts);
+
+        return CompletableFuture.supplyAsync(() -> {
+            Map<UUID, TransactionResult> results = new LinkedHashMap<>();
+            for (Map.Entry<UUID, Long> entry : batch.entrySet()) {
+                Player player = players.get(entry.getKey());
+                results.put(entry.getKey(), player != null
+                        ? apply(entry.getKey(), player, entry.getValue(), withdraw)
+                        : TransactionResult.OFFLINE);
+            }
+            return results;
+        }, executor);
+    }
+
+    private TransactionResult apply(UUID playerId, Player player, long amount, boolean withdraw) {
+
+        ReentrantLock stripe = stripeFor(playerId);
+        stripe.lock();
+        try {
+            if (!withdraw) {
+                return currency.deposit(player, amount) ? TransactionResult.SUCCESS : TransactionResult.FAILED;
+            }
+
+            // The player's stripe is held, so the balance can't change between check and withdrawal
+            if (!currency.hasBalance(player, amount)) {
+                return TransactionResult.INSUFFICIENT_FUNDS;
+            }
+            return currency.withdraw(player, amount) ? TransactionResult.SUCCESS : TransactionResult.FAILED;
+        } catch (RuntimeException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to " + (withdraw ? "withdraw " : "deposit ") +
+                    currency.formatAmount(amount) + (withdraw ? " from " : " to ") + player.getName(), e);
+            return TransactionResult.FAILED;
+        } finally {
+            // Whatever happened, the balance shown in menus may now be out of date
+            balances.invalidate(playerId);
+            stripe.unlock();
+        }
+    }
+
+    private ReentrantLock stripeFor(UUID playerId) {
+        long hash = playerId.getMostSignificantBits() ^ playerId.getLeastSignificantBits();
+        int spread = (int) (hash ^ (hash >>> 32));
+        spread ^= spread >>> 16;
+        return stripes[spread & (STRIPES - 1)];
+    }
+
+    @Override
+    public void close() {
+        if (ownedExecutor == null) {
+            return;
+        }
+
+        ownedExecutor.shutdown();
+        try {
+            if (!ownedExecutor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Timed out waiting for " + currency.getName() + " transactions to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return currency.getName();
+    }
+
+    @Override
+    public String getSymbol() {
+        return currency.getSymbol();
+    }
+
+    @Override
+    public String formatAmount(long amount) {
+        return currency.formatAmount(amount);
+    }
+
+    @Override
+    public long getBalance(Player player) {
+        return currency.getBalance(player);
+    }
+
+    @Override
+    public long getDisplayBalance(Player player) {
+        return balances.get(player.getUniqueId(), () -> getBalanceAsync(player));
+    }
+
+    @Override
+    public void forgetPlayer(UUID playerId) {
+        balances.invalidate(playerId);
+    }
+
+    @Override
+    public boolean withdraw(Player player, long amount) {
+        try {
+            return currency.withdraw(player, amount);
+        } finally {
+            balances.invalidate(player.getUniqueId());
+        }
+    }
+
+    @Override
+    public boolean deposit(Player player, long amount) {
+        try {
+            return currency.deposit(player, amount);
+        } finally {
+            balances.invalidate(player.getUniqueId());
+        }
+    }
+
+    @Override
+    public boolean hasBalance(Player player, long amount) {
+        return currency.hasBalance(player, amount);
+    }
+
+    @Override
+    public String getId() {
+        return currency.getId();
+    }
+
+    @Override
+    public String getColoredName() {
+        return currency.getColoredName();
+    }
+}
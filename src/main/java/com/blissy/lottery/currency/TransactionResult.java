@@ -0,0 +1,11 @@
+package com.blissy.lottery.currency;
+
+/**
+ * Outcome of a balance operation on one player.
+ */
+public enum TransactionResult {
+    SUCCESS,
+    INSUFFICIENT_FUNDS,
+    FAILED,
+    OFFLINE
+}
@@ -0,0 +1,52 @@
+package com.blissy.lottery.draw;
+
+import java.util.UUID;
+
+/**
+ * Outcome of one currency's lottery drawing.
+ */
+public final class DrawResult {
+    private final String currencyId;
+    private final UUID winnerId;
+    private final long prize;
+    private final long timestamp;
+
+    public DrawResult(String currencyId, UUID winnerId, long prize, long timestamp) {
+        this.currencyId = currencyId;
+        this.winnerId = winnerId;
+        this.prize = prize;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Get the ID of the currency that was drawn.
+     * @return The currency ID
+     */
+    public String getCurrencyId() {
+        return currencyId;
+    }
+
+    /**
+     * Get the winner's UUID.
+     * @return The winner's UUID
+     */
+    public UUID getWinnerId() {
+        return winnerId;
+    }
+
+    /**
+     * Get the prize paid to the winner.
+     * @return The prize
+     */
+    public long getPrize() {
+        return prize;
+    }
+
+    /**
+     * Get when the drawing took place.
+     * @return The time in epoch milliseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,310 @@
+package com.blissy.lottery.draw;
+
+import com.blissy.lottery.ledger.LedgerSnapshot;
+import com.blissy.lottery.storage.BinarySnapshotFormat;
+import com.blissy.lottery.storage.LotteryState;
+import com.blissy.lottery.storage.SnapshotFormat;
+import com.blissy.lottery.storage.YamlSnapshotFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.logging.Logger;
+
+/**
+ * Monte Carlo check that the drawing is fair.
+ * Runs many seeded draws over a pool in parallel, each worker with its own split
+ * of the random stream, and compares how often each player took first place with
+ * their share of the pool. Draws go through {@link PoolDraw#selectPlaces}, the
+ * same selection a live drawing uses.
+ *
+ * Can also be run on its own, to simulate a saved or synthetic pool, or to replay
+ * a drawing from the snapshot and seed it logged:
+ * <pre>
+ * java -cp spigot.jar:PSLottery.jar com.blissy.lottery.draw.FairnessSimulator
+ *     &lt;lottery_data.yml|lottery_data.dat|synthetic:players&gt; [currency] [draws] [seed] [tiers] [threads]
+ * java -cp spigot.jar:PSLottery.jar com.blissy.lottery.draw.FairnessSimulator
+ *     replay &lt;drawing snapshot&gt; &lt;seed&gt; [tiers]
+ * </pre>
+ */
+public class FairnessSimulator {
+    private final LedgerSnapshot entries;
+    private final int places;
+
+    /**
+     * Create a simulator.
+     * @param entries The pool to draw from
+     * @param places The number of winners per draw
+     */
+    public FairnessSimulator(LedgerSnapshot entries, int places) {
+        this.entries = entries;
+        this.places = Math.max(1, places);
+    }
+
+    /**
+     * Run the draws.
+     * The same seed, draw count and parallelism always give the same report.
+     * @param draws The number of draws
+     * @param seed The seed
+     * @param parallelism The number of workers, or 0 for one per processor
+     * @return The report
+     */
+    public Report run(long draws, long seed, int parallelism) {
+        int workers = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        WeightedSelector selector = WeightedSelector.of(entries);
+        SplittableRandom root = new SplittableRandom(seed);
+
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try {
+            List<ForkJoinTask<long[][]>> tasks = new ArrayList<>(workers);
+            for (int worker = 0; worker < workers; worker++) {
+                long workerDraws = draws / workers + (worker < draws % workers ? 1 : 0);
+                SplittableRandomAdapter random = new SplittableRandomAdapter(root.split());
+                tasks.add(pool.submit(() -> simulate(selector, workerDraws, random)));
+            }
+
+            long[] firstPlaces = new long[entries.size()];
+            long[] anyPlaces = new long[entries.size()];
+            for (ForkJoinTask<long[][]> task : tasks) {
+                long[][] counts = task.join();
+                for (int i = 0; i < firstPlaces.length; i++) {
+                    firstPlaces[i] += counts[0][i];
+                    anyPlaces[i] += counts[1][i];
+                }
+            }
+
+            return new Report(entries, draws, firstPlaces, anyPlaces);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private long[][] simulate(WeightedSelector selector, long draws, SplittableRandomAdapter random) {
+        long[] firstPlaces = new long[entries.size()];
+        long[] anyPlaces = new long[entries.size()];
+
+        for (long draw = 0; draw < draws; draw++) {
+            int[] winners = PoolDraw.selectPlaces(entries, selector, places, random);
+            if (winners.length == 0) {
+                continue;
+            }
+
+            firstPlaces[winners[0]]++;
+            for (int winner : winners) {
+                anyPlaces[winner]++;
+            }
+        }
+
+        return new long[][]{firstPlaces, anyPlaces};
+    }
+
+    /**
+     * Generate a pool of random entries.
+     * @param players The number of players
+     * @param maxEntry The largest amount a player enters
+     * @param seed The seed
+     * @return The pool
+     */
+    public static LedgerSnapshot syntheticPool(int players, long maxEntry, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] mostSigBits = new long[players];
+        long[] leastSigBits = new long[players];
+        long[] amounts = new long[players];
+
+        for (int i = 0; i < players; i++) {
+            mostSigBits[i] = random.nextLong();
+            leastSigBits[i] = i;
+            amounts[i] = 1 + random.nextLong(maxEntry);
+        }
+
+        return LedgerSnapshot.wrap(mostSigBits, leastSigBits, amounts);
+    }
+
+    /**
+     * Run the simulator from the command line.
+     * @param args The source, then optionally currency, draws, seed, prize tiers and threads
+     * @throws IOException If the data file could not be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: FairnessSimulator <lottery_data.yml|lottery_data.dat|synthetic:players> " +
+                    "[currency] [draws] [seed] [tiers] [threads]");
+            return;
+        }
+
+        if (args[0].equals("replay") && args.length >= 3) {
+            replay(new File(args[1]), Long.parseLong(args[2]), args.length > 3 ? parseTiers(args[3]) : new int[]{100});
+            return;
+        }
+
+        String currency = args.length > 1 ? args[1] : "coins";
+        long draws = args.length > 2 ? Long.parseLong(args[2]) : 1_000_000L;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+        int places = args.length > 4 ? parseTiers(args[4]).length : 1;
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : 0;
+
+        LedgerSnapshot pool;
+        if (args[0].startsWith("synthetic:")) {
+            pool = syntheticPool(Integer.parseInt(args[0].substring("synthetic:".length())), 10_000, seed);
+        } else {
+            pool = load(new File(args[0])).getEntries().getOrDefault(currency, LedgerSnapshot.empty());
+        }
+
+        if (pool.size() == 0) {
+            System.out.println("No entries to simulate");
+            return;
+        }
+
+        long start = System.nanoTime();
+        Report report = new FairnessSimulator(pool, places).run(draws, seed, threads);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println("player,entered,expected_first,observed_first,observed_any");
+        for (int i = 0; i < pool.size(); i++) {
+            System.out.println(pool.playerId(i) + "," + pool.amount(i) + "," + report.expectedRate(i) + "," +
+                    report.observedRate(i) + "," + report.observedAnyRate(i));
+        }
+        System.out.println(report.summary() + " in " + millis + " ms (seed " + seed + ")");
+    }
+
+    /**
+     * Print the winners a drawing picked, using the same seeding as the live drawing.
+     * @param file The snapshot of the pools taken for the drawing
+     * @param seed The seed the drawing logged
+     * @param tiers The prize tiers that were configured
+     * @throws IOException If the snapshot could not be read
+     */
+    private static void replay(File file, long seed, int[] tiers) throws IOException {
+        for (Map.Entry<String, LedgerSnapshot> entry : load(file).getEntries().entrySet()) {
+            PoolDraw draw = new PoolDraw(entry.getKey(), entry.getValue(), tiers);
+            draw.selectWinners(PoolDraw.randomFor(seed, entry.getKey()));
+
+            for (DrawResult result : draw.getResults()) {
+                System.out.println(entry.getKey() + "," + result.getWinnerId() + "," + result.getPrize());
+            }
+        }
+    }
+
+    private static LotteryState load(File file) throws IOException {
+        SnapshotFormat format = file.getName().endsWith(".dat") ? new BinarySnapshotFormat() : new YamlSnapshotFormat();
+        return format.decode(file, Logger.getLogger("PSLottery"));
+    }
+
+    private static int[] parseTiers(String tiers) {
+        return Arrays.stream(tiers.split(",")).mapToInt(Integer::parseInt).toArray();
+    }
+
+    /**
+     * Outcome of a simulation.
+     */
+    public static final class Report {
+        private final LedgerSnapshot entries;
+        private final long draws;
+        private final long[] firstPlaces;
+        private final long[] anyPlaces;
+
+        Report(LedgerSnapshot entries, long draws, long[] firstPlaces, long[] anyPlaces) {
+            this.entries = entries;
+            this.draws = draws;
+            this.firstPlaces = firstPlaces;
+            this.anyPlaces = anyPlaces;
+        }
+
+        /**
+         * Get the number of draws run.
+         * @return The draw count
+         */
+        public long getDraws() {
+            return draws;
+        }
+
+        /**
+         * Get a player's chance of first place from their share of the pool.
+         * @param index The entry index
+         * @return The expected rate
+         */
+        public double expectedRate(int index) {
+            return (double) entries.amount(index) / entries.total();
+        }
+
+        /**
+         * Get how often a player took first place.
+         * @param index The entry index
+         * @return The observed rate
+         */
+        public double observedRate(int index) {
+            return draws > 0 ? (double) firstPlaces[index] / draws : 0.0;
+        }
+
+        /**
+         * Get how often a player won any place.
+         * @param index The entry index
+         * @return The observed rate
+         */
+        public double observedAnyRate(int index) {
+            return draws > 0 ? (double) anyPlaces[index] / draws : 0.0;
+        }
+
+        /**
+         * Get Pearson's chi-squared statistic for first places against the pool shares.
+         * @return The statistic, with one degree of freedom fewer than there are players
+         */
+        public double chiSquared() {
+            double statistic = 0;
+            for (int i = 0; i < firstPlaces.length; i++) {
+                double expected = expectedRate(i) * draws;
+                double difference = firstPlaces[i] - expected;
+                statistic += difference * difference / expected;
+            }
+            return statistic;
+        }
+
+        /**
+         * Get the players whose first-place rate is furthest from expected, in standard deviations.
+         * @param count The number of players
+         * @return The entry indices, furthest first
+         */
+        public int[] largestDeviations(int count) {
+            Integer[] order = new Integer[firstPlaces.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(Math.abs(zScore(b)), Math.abs(zScore(a))));
+
+            int[] indices = new int[Math.min(count, order.length)];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = order[i];
+            }
+            return indices;
+        }
+
+        /**
+         * Get how far a player's first-place count is from expected.
+         * @param index The entry index
+         * @return The difference in standard deviations
+         */
+        public double zScore(int index) {
+            double rate = expectedRate(index);
+            double deviation = Math.sqrt(draws * rate * (1 - rate));
+            return deviation > 0 ? (firstPlaces[index] - draws * rate) / deviation : 0.0;
+        }
+
+        /**
+         * Describe the result in one line.
+         * @return The summary
+         */
+        public String summary() {
+            int degrees = Math.max(1, firstPlaces.length - 1);
+            int[] worst = largestDeviations(1);
+            return String.format("%,d draws over %,d players: chi-squared %.1f (%d degrees of freedom), " +
+                            "largest deviation %.2f sigma",
+                    draws, firstPlaces.length, chiSquared(), degrees, worst.length > 0 ? zScore(worst[0]) : 0.0);
+        }
+    }
+}
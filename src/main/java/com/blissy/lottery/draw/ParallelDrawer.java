@@ -0,0 +1,68 @@
+package com.blissy.lottery.draw;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Draws several independent pools at once on a bounded fork/join pool.
+ * Each pool is drawn from its own immutable snapshot, so the tasks share no
+ * state; the draws keep their original order for announcing and paying out.
+ */
+public class ParallelDrawer {
+    private final int parallelism;
+
+    /**
+     * Create a drawer.
+     * @param parallelism The maximum number of pools drawn at once, or 0 for one per processor
+     */
+    public ParallelDrawer(int parallelism) {
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Select the winners of every pool, waiting until all are drawn.
+     * The same seed and pools always produce the same winners.
+     * @param draws The pools to draw
+     * @param seed The seed for the drawing
+     */
+    public void drawAll(List<PoolDraw> draws, long seed) {
+        // Each pool's stream depends only on the seed and its currency, not on thread or order
+        List<Random> randoms = new ArrayList<>(draws.size());
+        for (PoolDraw draw : draws) {
+            randoms.add(PoolDraw.randomFor(seed, draw.getCurrencyId()));
+        }
+
+        // Nothing to gain from a pool of threads for a single draw
+        if (draws.size() <= 1 || parallelism == 1) {
+            for (int i = 0; i < draws.size(); i++) {
+                draws.get(i).selectWinners(randoms.get(i));
+            }
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, draws.size()), forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("PSLottery-Draw-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(draws.size());
+            for (int i = 0; i < draws.size(); i++) {
+                PoolDraw draw = draws.get(i);
+                Random random = randoms.get(i);
+                tasks.add(pool.submit(() -> draw.selectWinners(random)));
+            }
+
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
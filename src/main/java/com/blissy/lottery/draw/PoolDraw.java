@@ -0,0 +1,159 @@
+package com.blissy.lottery.draw;
+
+import com.blissy.lottery.ledger.LedgerSnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * One currency's pool as it moves through a drawing.
+ * Created on the main thread from a snapshot of the pool; the winners and
+ * their names are filled in by the background stage.
+ */
+public class PoolDraw {
+    private final String currencyId;
+    private final LedgerSnapshot entries;
+    private final int[] prizeTiers;
+    private final Map<UUID, String> winnerNames = new HashMap<>();
+    private List<DrawResult> results = Collections.emptyList();
+
+    /**
+     * Create a draw.
+     * @param currencyId The currency ID
+     * @param entries Snapshot of the pool
+     * @param prizeTiers Share of the pool for each place, as relative weights
+     */
+    public PoolDraw(String currencyId, LedgerSnapshot entries, int[] prizeTiers) {
+        this.currencyId = currencyId;
+        this.entries = entries;
+        this.prizeTiers = prizeTiers;
+    }
+
+    /**
+     * Select the winners, weighted by the amount each player entered.
+     * A player can win at most one place.
+     * @param random The random source
+     */
+    public void selectWinners(Random random) {
+        if (entries.size() == 0) {
+            results = Collections.emptyList();
+            return;
+        }
+
+        long timestamp = System.currentTimeMillis();
+        WeightedSelector selector = prizeTiers.length <= 1 ? WeightedSelector.of(entries) : null;
+        int[] winners = selectPlaces(entries, selector, prizeTiers.length, random);
+        long[] prizes = splitPool(entries.total(), prizeTiers, winners.length);
+
+        List<DrawResult> drawn = new ArrayList<>(winners.length);
+        for (int place = 0; place < winners.length; place++) {
+            drawn.add(new DrawResult(currencyId, entries.playerId(winners[place]), prizes[place], timestamp));
+        }
+        results = drawn;
+    }
+
+    /**
+     * Get the random source a drawing uses for a currency.
+     * @param seed The drawing's seed
+     * @param currencyId The currency ID
+     * @return The random source
+     */
+    public static Random randomFor(long seed, String currencyId) {
+        return SplittableRandomAdapter.seeded(seed ^ (currencyId.hashCode() * 0x9E3779B97F4A7C15L));
+    }
+
+    /**
+     * Select the entries that win each place.
+     * This is the selection every drawing uses; the fairness simulator calls it directly.
+     * @param entries The pool
+     * @param selector Selector built from the pool; only needed for a single place
+     * @param places The number of places
+     * @param random The random source
+     * @return The indices of the winning entries, first place first
+     */
+    public static int[] selectPlaces(LedgerSnapshot entries, WeightedSelector selector, int places, Random random) {
+        if (entries.size() == 0) {
+            return new int[0];
+        }
+
+        // Single winner takes the whole pool
+        if (places <= 1) {
+            return new int[]{selector.selectIndex(random)};
+        }
+
+        return WeightedSampler.sample(entries, places, random);
+    }
+
+    /**
+     * Split a pool between the places that have a winner.
+     * Places without a winner are left out, and any rounding remainder goes to first place.
+     * @param total The pool total
+     * @param tiers The relative share of each place
+     * @param places The number of places with a winner
+     * @return The prize for each place
+     */
+    static long[] splitPool(long total, int[] tiers, int places) {
+        long weight = 0;
+        for (int place = 0; place < places; place++) {
+            weight += tiers[place];
+        }
+
+        long[] prizes = new long[places];
+        long paid = 0;
+        for (int place = 0; place < places; place++) {
+            // Split the division so the multiplication cannot overflow
+            prizes[place] = (total / weight) * tiers[place] + (total % weight) * tiers[place] / weight;
+            paid += prizes[place];
+        }
+        prizes[0] += total - paid;
+
+        return prizes;
+    }
+
+    /**
+     * Get the ID of the currency being drawn.
+     * @return The currency ID
+     */
+    public String getCurrencyId() {
+        return currencyId;
+    }
+
+    /**
+     * Get the pool that is being drawn.
+     * @return The snapshot of the pool
+     */
+    public LedgerSnapshot getEntries() {
+        return entries;
+    }
+
+    /**
+     * Get the winners, first place first.
+     * @return The results, empty if the pool was empty
+     */
+    public List<DrawResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Get a winner's name.
+     * @param winnerId The winner's UUID
+     * @return The name, or "Unknown" if it could not be resolved
+     */
+    public String getWinnerName(UUID winnerId) {
+        return winnerNames.getOrDefault(winnerId, "Unknown");
+    }
+
+    /**
+     * Set a winner's name.
+     * @param winnerId The winner's UUID
+     * @param winnerName The name
+     */
+    public void setWinnerName(UUID winnerId, String winnerName) {
+        winnerNames.put(winnerId, winnerName);
+    }
+}
@@ -0,0 +1,74 @@
+package com.blissy.lottery.draw;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Presents a {@link SplittableRandom} as a {@link Random}, so the selection code
+ * can take independent, reproducible streams without sharing a locked seed.
+ * Not thread-safe; give each thread its own split.
+ */
+public class SplittableRandomAdapter extends Random {
+    private static final long serialVersionUID = 1L;
+
+    private final SplittableRandom random;
+
+    public SplittableRandomAdapter(SplittableRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * Create a reproducible random source.
+     * @param seed The seed
+     * @return The random source
+     */
+    public static SplittableRandomAdapter seeded(long seed) {
+        return new SplittableRandomAdapter(new SplittableRandom(seed));
+    }
+
+    /**
+     * Split off an independent random source.
+     * @return The new random source
+     */
+    public SplittableRandomAdapter split() {
+        return new SplittableRandomAdapter(random.split());
+    }
+
+    @Override
+    protected int next(int bits) {
+        return random.nextInt() >>> (32 - bits);
+    }
+
+    @Override
+    public int nextInt() {
+        return random.nextInt();
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    @Override
+    public long nextLong() {
+        return random.nextLong();
+    }
+
+    @Override
+    public double nextDouble() {
+        return random.nextDouble();
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return random.nextBoolean();
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        // The seed is fixed by the wrapped generator; Random's constructor calls this before it is set
+        if (random != null) {
+            throw new UnsupportedOperationException("Seed a new SplittableRandom instead");
+        }
+    }
+}
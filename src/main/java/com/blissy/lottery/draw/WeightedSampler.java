@@ -0,0 +1,87 @@
+package com.blissy.lottery.draw;
+
+import com.blissy.lottery.ledger.LedgerSnapshot;
+
+import java.util.Random;
+
+/**
+ * Weighted sampling of several distinct winners in a single pass.
+ * Every entry gets the key {@code -ln(u) / amount} for a uniform {@code u}; the
+ * entries with the smallest keys are a weighted sample without replacement, in
+ * the order they would have been drawn one by one (Efraimidis and Spirakis).
+ * Only the current best keys are kept, in a bounded heap.
+ */
+public final class WeightedSampler {
+    private WeightedSampler() {
+    }
+
+    /**
+     * Sample distinct entries, weighted by their amounts.
+     * @param entries The entries to sample from
+     * @param count The number of entries wanted
+     * @param random The random source
+     * @return The indices of the sampled entries, first drawn first; fewer than
+     *         requested if there are not enough entries
+     */
+    public static int[] sample(LedgerSnapshot entries, int count, Random random) {
+        int size = Math.min(count, entries.size());
+        if (size <= 0) {
+            return new int[0];
+        }
+
+        // Max-heap on the key, so the root is the entry closest to being dropped
+        double[] keys = new double[size];
+        int[] indices = new int[size];
+        int heapSize = 0;
+
+        for (int i = 0; i < entries.size(); i++) {
+            double key = -Math.log(1.0 - random.nextDouble()) / entries.amount(i);
+
+            if (heapSize < size) {
+                int child = heapSize++;
+                while (child > 0) {
+                    int parent = (child - 1) >>> 1;
+                    if (keys[parent] >= key) {
+                        break;
+                    }
+                    keys[child] = keys[parent];
+                    indices[child] = indices[parent];
+                    child = parent;
+                }
+                keys[child] = key;
+                indices[child] = i;
+            } else if (key < keys[0]) {
+                siftDown(keys, indices, heapSize, key, i);
+            }
+        }
+
+        // Empty the heap from the back to order the winners by key
+        int[] sampled = new int[size];
+        for (int last = size - 1; last >= 0; last--) {
+            sampled[last] = indices[0];
+            siftDown(keys, indices, last, keys[last], indices[last]);
+        }
+        return sampled;
+    }
+
+    private static void siftDown(double[] keys, int[] indices, int heapSize, double key, int index) {
+        int parent = 0;
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && keys[child + 1] > keys[child]) {
+                child++;
+            }
+            if (keys[child] <= key) {
+                break;
+            }
+            keys[parent] = keys[child];
+            indices[parent] = indices[child];
+            parent = child;
+        }
+        keys[parent] = key;
+        indices[parent] = index;
+    }
+}
@@ -0,0 +1,172 @@
+package com.blissy.lottery.draw;
+
+import com.blissy.lottery.ledger.LedgerSnapshot;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Weighted winner selection over per-player entry totals.
+ * Every unit of currency entered counts as one ticket, but tickets are never
+ * materialized: a ticket number is drawn uniformly from the pool and mapped back
+ * to its owner with a binary search over the cumulative totals.
+ */
+public class WeightedSelector {
+    private final UUID[] participants;
+    private final long[] cumulative;
+    private final long total;
+
+    private WeightedSelector(UUID[] participants, long[] cumulative, long total) {
+        this.participants = participants;
+        this.cumulative = cumulative;
+        this.total = total;
+    }
+
+    /**
+     * Build a selector from a map of player entries.
+     * @param entries Map of player UUIDs to entry amounts
+     * @return The selector
+     */
+    public static WeightedSelector of(Map<UUID, Long> entries) {
+        UUID[] participants = new UUID[entries.size()];
+        long[] cumulative = new long[entries.size()];
+        long total = 0;
+        int index = 0;
+
+        for (Map.Entry<UUID, Long> entry : entries.entrySet()) {
+            long amount = entry.getValue();
+            if (amount <= 0) {
+                continue;
+            }
+
+            total = Math.addExact(total, amount);
+            participants[index] = entry.getKey();
+            cumulative[index] = total;
+            index++;
+        }
+
+        if (index < participants.length) {
+            UUID[] trimmedParticipants = new UUID[index];
+            long[] trimmedCumulative = new long[index];
+            System.arraycopy(participants, 0, trimmedParticipants, 0, index);
+            System.arraycopy(cumulative, 0, trimmedCumulative, 0, index);
+            participants = trimmedParticipants;
+            cumulative = trimmedCumulative;
+        }
+
+        return new WeightedSelector(participants, cumulative, total);
+    }
+
+    /**
+     * Build a selector from a ledger snapshot.
+     * @param entries The snapshot
+     * @return The selector
+     */
+    public static WeightedSelector of(LedgerSnapshot entries) {
+        UUID[] participants = new UUID[entries.size()];
+        long[] cumulative = new long[entries.size()];
+        long total = 0;
+
+        for (int i = 0; i < participants.length; i++) {
+            total += entries.amount(i);
+            participants[i] = entries.playerId(i);
+            cumulative[i] = total;
+        }
+
+        return new WeightedSelector(participants, cumulative, total);
+    }
+
+    /**
+     * Get the total number of tickets in the pool.
+     * @return The total
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Check if there is nothing to draw from.
+     * @return True if the pool is empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return total == 0;
+    }
+
+    /**
+     * Select a winner, weighted by the amount each player entered.
+     * @param random The random source
+     * @return The winner's UUID, or null if the pool is empty
+     */
+    public UUID select(Random random) {
+        if (isEmpty()) {
+            return null;
+        }
+
+        return participants[selectIndex(random)];
+    }
+
+    /**
+     * Select a winner, weighted by the amount each player entered.
+     * @param random The random source
+     * @return The winner's position in the entries the selector was built from
+     */
+    public int selectIndex(Random random) {
+        return indexOf(nextTicket(random, total));
+    }
+
+    /**
+     * Get the owner of a ticket.
+     * @param ticket The ticket number, between 0 (inclusive) and the total (exclusive)
+     * @return The owner's UUID
+     */
+    public UUID ownerOf(long ticket) {
+        return participants[indexOf(ticket)];
+    }
+
+    private int indexOf(long ticket) {
+        if (ticket < 0 || ticket >= total) {
+            throw new IllegalArgumentException("Ticket " + ticket + " is outside the pool of " + total);
+        }
+
+        // Find the first participant whose cumulative total is above the ticket
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] > ticket) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Draw a uniformly distributed ticket number.
+     * @param random The random source
+     * @param bound The number of tickets (must be positive)
+     * @return A ticket number between 0 (inclusive) and the bound (exclusive)
+     */
+    public static long nextTicket(Random random, long bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("Bound must be positive");
+        }
+
+        if (bound <= Integer.MAX_VALUE) {
+            return random.nextInt((int) bound);
+        }
+
+        // Rejection sampling keeps every ticket equally likely for large pools
+        long bits;
+        long value;
+        do {
+            bits = random.nextLong() >>> 1;
+            value = bits % bound;
+        } while (bits - value + (bound - 1) < 0);
+
+        return value;
+    }
+}
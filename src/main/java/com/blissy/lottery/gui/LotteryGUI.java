@@ -2,6 +2,8 @@ package com.blissy.lottery.gui;
 
 import com.blissy.lottery.Lottery;
 import com.blissy.lottery.currency.Currency;
+import com.blissy.lottery.ledger.TopEntrants;
+import com.blissy.lottery.utils.RateLimiter;
 import com.blissy.lottery.utils.TimeUtil;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
@@ -11,23 +13,41 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryCloseEvent;
-import org.bukkit.inventory.Inventory;
-import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.scheduler.BukkitTask;
 
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 public class LotteryGUI implements Listener {
+    private static final DateTimeFormatter DRAWING_DATE = DateTimeFormatter.ofPattern("EEEE, MMMM d");
+    private static final int MENU_SIZE = 27;
+    private static final int ENTRANTS_PER_PAGE = 18;
+    private static final long DEFAULT_REFRESH_INTERVAL = 20; // ticks
+
     private final Lottery plugin;
-    private final Map<Player, GUIState> playerStates = new HashMap<>();
+    private final MenuItems items = new MenuItems();
+
+    // Main thread only
+    private final Map<UUID, LotteryMenu> openMenus = new HashMap<>(); // by viewer, so no Player is kept
+    private BukkitTask refreshTask;
+    private long shownPoolVersion;
+    private String shownCountdown;
+    private boolean balancesLoading; // a menu shows a balance that is still being read
+    private boolean loadingRefreshScheduled;
 
     public LotteryGUI(Lottery plugin) {
         this.plugin = plugin;
         plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        startRefresh();
     }
 
     /**
@@ -35,17 +55,24 @@ public class LotteryGUI implements Listener {
      * @param player The player
      */
     public void openMainMenu(Player player) {
-        Inventory inventory = Bukkit.createInventory(null, 27, ChatColor.GOLD + "Weekly Lottery");
+        LotteryMenu menu = menuFor(player);
+        menu.show(LotteryMenu.Type.MAIN_MENU, null);
+        showMainMenu(menu, player, TimeUtil.formatTimeUntil(plugin.getLotteryManager().getNextDrawingTime()));
+        open(player, menu);
+    }
 
+    /**
+     * Fill in the main menu.
+     * @param menu The menu
+     * @param player The player the menu is shown to
+     * @param countdown The time until the next drawing
+     */
+    private void showMainMenu(LotteryMenu menu, Player player, String countdown) {
         // Add info item
-        ItemStack infoItem = createItem(Material.CLOCK,
-                ChatColor.GOLD + "Lottery Information",
+        menu.setItem(4, items.info(), Arrays.asList(
                 ChatColor.YELLOW + "Next drawing: " + ChatColor.WHITE +
-                        DateTimeFormatter.ofPattern("EEEE, MMMM d")
-                                .format(plugin.getLotteryManager().getNextDrawingTime()),
-                ChatColor.YELLOW + "Time remaining: " + ChatColor.WHITE +
-                        TimeUtil.formatTimeUntil(plugin.getLotteryManager().getNextDrawingTime()));
-        inventory.setItem(4, infoItem);
+                        DRAWING_DATE.format(plugin.getLotteryManager().getNextDrawingTime()),
+                ChatColor.YELLOW + "Time remaining: " + ChatColor.WHITE + countdown));
 
         // Add currency items
         int slot = 10;
@@ -54,23 +81,16 @@ public class LotteryGUI implements Listener {
             int participants = plugin.getLotteryManager().getParticipantCount(currency);
             long playerEntries = plugin.getLotteryManager().getPlayerEntries(currency, player.getUniqueId());
 
-            Material material = getMaterialForCurrency(currency);
-
-            ItemStack currencyItem = createItem(material,
-                    currency.getColoredName() + ChatColor.GOLD + " Lottery",
+            menu.setItem(slot, items.currency(currency), Arrays.asList(
                     ChatColor.YELLOW + "Current pool: " + ChatColor.WHITE + currency.formatAmount(poolTotal),
                     ChatColor.YELLOW + "Participants: " + ChatColor.WHITE + participants,
                     ChatColor.YELLOW + "Your entries: " + ChatColor.WHITE + playerEntries,
-                    ChatColor.YELLOW + "Your balance: " + ChatColor.WHITE + currency.formatAmount(currency.getBalance(player)),
+                    ChatColor.YELLOW + "Your balance: " + ChatColor.WHITE +
+                            formatBalance(currency, currency.getDisplayBalance(player)),
                     "",
-                    ChatColor.GREEN + "Click to enter this lottery");
-
-            inventory.setItem(slot, currencyItem);
+                    ChatColor.GREEN + "Click to enter this lottery"));
             slot += 2;
         }
-
-        player.openInventory(inventory);
-        playerStates.put(player, new GUIState(GUIType.MAIN_MENU));
     }
 
     /**
@@ -79,74 +99,279 @@ public class LotteryGUI implements Listener {
      * @param currency The currency
      */
     private void openEntryMenu(Player player, Currency currency) {
-        Inventory inventory = Bukkit.createInventory(null, 27,
-                ChatColor.GOLD + "Enter " + currency.getName() + " Lottery");
+        LotteryMenu menu = menuFor(player);
+        menu.show(LotteryMenu.Type.ENTRY_MENU, currency);
+        showEntryMenu(menu, player);
+        open(player, menu);
+    }
+
+    /**
+     * Fill in an entry menu.
+     * @param menu The menu
+     * @param player The player the menu is shown to
+     */
+    private void showEntryMenu(LotteryMenu menu, Player player) {
+        Currency currency = menu.getCurrency();
 
         // Add currency info
         long poolTotal = plugin.getLotteryManager().getPoolTotal(currency);
         int participants = plugin.getLotteryManager().getParticipantCount(currency);
         long playerEntries = plugin.getLotteryManager().getPlayerEntries(currency, player.getUniqueId());
-        long playerBalance = currency.getBalance(player);
+        long playerBalance = currency.getDisplayBalance(player);
 
-        ItemStack infoItem = createItem(getMaterialForCurrency(currency),
-                currency.getColoredName() + ChatColor.GOLD + " Lottery",
+        menu.setItem(4, items.currency(currency), Arrays.asList(
                 ChatColor.YELLOW + "Current pool: " + ChatColor.WHITE + currency.formatAmount(poolTotal),
                 ChatColor.YELLOW + "Participants: " + ChatColor.WHITE + participants,
                 ChatColor.YELLOW + "Your entries: " + ChatColor.WHITE + playerEntries,
-                ChatColor.YELLOW + "Your balance: " + ChatColor.WHITE + currency.formatAmount(playerBalance));
-        inventory.setItem(4, infoItem);
+                ChatColor.YELLOW + "Your balance: " + ChatColor.WHITE + formatBalance(currency, playerBalance)));
 
-        // Add entry options
+        // Add entry options; the last one is the player's whole balance. None are shown while it loads
         long[] amounts = getEntryAmounts(playerBalance);
         int slot = 10;
 
-        for (long amount : amounts) {
-            if (amount <= playerBalance) {
-                ItemStack amountItem = createItem(Material.GOLD_INGOT,
-                        ChatColor.GOLD + "Enter with " + currency.formatAmount(amount),
-                        ChatColor.YELLOW + "Click to enter the lottery with " + currency.formatAmount(amount));
-                inventory.setItem(slot, amountItem);
+        for (int i = 0; i < amounts.length; i++) {
+            long amount = amounts[i];
+            if (amount <= 0 || amount > playerBalance) {
+                menu.clearItem(slot);
+            } else if (i < amounts.length - 1) {
+                menu.setItem(slot, items.entryButton(currency, amount), null);
+            } else {
+                menu.setItem(slot, items.allInButton(currency), Collections.singletonList(
+                        ChatColor.YELLOW + "Click to enter the lottery with " + currency.formatAmount(amount)));
             }
             slot++;
         }
 
+        // Add back and ranking buttons
+        menu.setItem(22, items.backButton(), null);
+        menu.setItem(26, items.topButton(), null);
+    }
+
+    /**
+     * Open a page of a currency's largest entrants.
+     * @param player The player
+     * @param currency The currency
+     * @param page The page, starting at 0
+     */
+    public void openTopMenu(Player player, Currency currency, int page) {
+        LotteryMenu menu = menuFor(player);
+        menu.show(LotteryMenu.Type.TOP_MENU, currency, Math.max(0, page));
+        showTopMenu(menu);
+        open(player, menu);
+    }
+
+    /**
+     * Fill in a page of the largest entrants.
+     * @param menu The menu
+     */
+    private void showTopMenu(LotteryMenu menu) {
+        Currency currency = menu.getCurrency();
+        List<TopEntrants.Entrant> ranking = plugin.getLotteryManager().getTopEntrants(currency);
+        int pages = Math.max(1, (ranking.size() + ENTRANTS_PER_PAGE - 1) / ENTRANTS_PER_PAGE);
+        int page = Math.min(menu.getPage(), pages - 1);
+
+        // Add entrants
+        int first = page * ENTRANTS_PER_PAGE;
+        for (int slot = 0; slot < ENTRANTS_PER_PAGE; slot++) {
+            if (first + slot < ranking.size()) {
+                menu.setItem(slot, items.entrant(currency, ranking, first + slot), null);
+            } else {
+                menu.clearItem(slot);
+            }
+        }
+
+        // Add page buttons
+        List<String> pageLore = Collections.singletonList(
+                ChatColor.GRAY + "Page " + (page + 1) + " of " + pages);
+        if (page > 0) {
+            menu.setItem(18, items.previousPage(), pageLore);
+        } else {
+            menu.clearItem(18);
+        }
+        if (page < pages - 1) {
+            menu.setItem(26, items.nextPage(), pageLore);
+        } else {
+            menu.clearItem(26);
+        }
+
         // Add back button
-        ItemStack backButton = createItem(Material.ARROW,
-                ChatColor.RED + "Back to Main Menu",
-                ChatColor.GRAY + "Click to return to the main lottery menu");
-        inventory.setItem(22, backButton);
+        menu.setItem(22, items.backButton(), null);
+    }
+
+    /**
+     * Get the lottery menu a player has open, or create one.
+     * @param player The player
+     * @return The menu
+     */
+    private LotteryMenu menuFor(Player player) {
+        InventoryHolder holder = player.getOpenInventory().getTopInventory().getHolder();
+        if (holder instanceof LotteryMenu) {
+            return (LotteryMenu) holder;
+        }
+
+        // Titles can't change while open, so every menu shares the configured one
+        LotteryMenu menu = new LotteryMenu();
+        menu.setInventory(Bukkit.createInventory(menu, MENU_SIZE, ChatColor.GOLD +
+                ChatColor.translateAlternateColorCodes('&', plugin.getConfig().getString("gui.title", "Weekly Lottery"))));
+        return menu;
+    }
+
+    private void open(Player player, LotteryMenu menu) {
+        // A menu that is already open was updated in place
+        if (player.getOpenInventory().getTopInventory() != menu.getInventory()) {
+            player.openInventory(menu.getInventory());
+            openMenus.put(player.getUniqueId(), menu);
+        }
+        scheduleLoadingRefresh();
+    }
+
+    private String formatBalance(Currency currency, long balance) {
+        if (balance == Currency.BALANCE_LOADING) {
+            balancesLoading = true;
+            return ChatColor.GRAY + "Loading...";
+        }
+        return currency.formatAmount(balance);
+    }
+
+    private void scheduleLoadingRefresh() {
+        // Without live updates, still redraw once the balances have been read
+        if (refreshTask == null && balancesLoading && !loadingRefreshScheduled) {
+            loadingRefreshScheduled = true;
+            Bukkit.getScheduler().runTaskLater(plugin, () -> {
+                loadingRefreshScheduled = false;
+                refreshOpenMenus();
+            }, DEFAULT_REFRESH_INTERVAL);
+        }
+    }
+
+    /**
+     * Forget the item templates and restart the refresh, after the plugin was reloaded.
+     */
+    public void reload() {
+        items.clear();
+
+        // The lottery manager was replaced, so its pool version starts over
+        shownCountdown = null;
+        startRefresh();
+    }
+
+    private void startRefresh() {
+        if (refreshTask != null) {
+            refreshTask.cancel();
+            refreshTask = null;
+        }
+
+        long interval = plugin.getConfig().getLong("gui.refresh_interval", DEFAULT_REFRESH_INTERVAL);
+        if (interval > 0) {
+            refreshTask = Bukkit.getScheduler().runTaskTimer(plugin, this::refreshOpenMenus, interval, interval);
+        }
+    }
+
+    /**
+     * Bring the open menus up to date, if anything they show has changed since the last refresh.
+     * Entries added since then are all picked up by this one refresh, and only
+     * slots whose contents changed are sent to the viewers. Menus still waiting
+     * for a balance are redrawn until it arrives.
+     */
+    private void refreshOpenMenus() {
+        if (openMenus.isEmpty()) {
+            balancesLoading = false;
+            return;
+        }
+
+        long poolVersion = plugin.getLotteryManager().getPoolVersion();
+        String countdown = TimeUtil.formatTimeUntil(plugin.getLotteryManager().getNextDrawingTime());
+        if (poolVersion == shownPoolVersion && countdown.equals(shownCountdown) && !balancesLoading) {
+            return;
+        }
+        shownPoolVersion = poolVersion;
+        shownCountdown = countdown;
+        balancesLoading = false;
+
+        Iterator<Map.Entry<UUID, LotteryMenu>> iterator = openMenus.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, LotteryMenu> entry = iterator.next();
+            LotteryMenu menu = entry.getValue();
+            Player player = Bukkit.getPlayer(entry.getKey());
+
+            // Left or closed without us hearing about it
+            if (player == null || player.getOpenInventory().getTopInventory() != menu.getInventory()) {
+                iterator.remove();
+                continue;
+            }
 
-        player.openInventory(inventory);
-        playerStates.put(player, new GUIState(GUIType.ENTRY_MENU, currency));
+            if (menu.getType() == LotteryMenu.Type.MAIN_MENU) {
+                showMainMenu(menu, player, countdown);
+            } else if (menu.getType() == LotteryMenu.Type.ENTRY_MENU) {
+                showEntryMenu(menu, player);
+            } else if (menu.getType() == LotteryMenu.Type.TOP_MENU) {
+                showTopMenu(menu);
+            }
+        }
+        scheduleLoadingRefresh();
     }
 
     @EventHandler
     public void onInventoryClick(InventoryClickEvent event) {
-        if (!(event.getWhoClicked() instanceof Player)) {
+        // Lottery menus carry their state in their holder; anything else is not ours
+        InventoryHolder holder = event.getInventory().getHolder();
+        if (!(holder instanceof LotteryMenu) || !(event.getWhoClicked() instanceof Player)) {
             return;
         }
 
         Player player = (Player) event.getWhoClicked();
-        GUIState state = playerStates.get(player);
+        LotteryMenu menu = (LotteryMenu) holder;
 
-        if (state == null) {
+        event.setCancelled(true);
+
+        // Ignore clicks in the player's own inventory below the menu
+        if (event.getClickedInventory() != event.getInventory()) {
             return;
         }
 
-        event.setCancelled(true);
-
         if (event.getCurrentItem() == null || event.getCurrentItem().getType() == Material.AIR) {
             return;
         }
 
-        // Handle based on GUI type
-        if (state.getType() == GUIType.MAIN_MENU) {
+        // Drop clicks faster than anyone needs to navigate
+        if (!plugin.getRateLimiter().tryAcquire(player, RateLimiter.Action.MENU_CLICK)) {
+            return;
+        }
+
+        // Handle based on menu type
+        if (menu.getType() == LotteryMenu.Type.MAIN_MENU) {
             handleMainMenuClick(player, event.getSlot());
-        } else if (state.getType() == GUIType.ENTRY_MENU) {
-            handleEntryMenuClick(player, event.getSlot(), state.getCurrency());
+        } else if (menu.getType() == LotteryMenu.Type.ENTRY_MENU) {
+            handleEntryMenuClick(player, event.getSlot(), menu.getCurrency());
+        } else if (menu.getType() == LotteryMenu.Type.TOP_MENU) {
+            handleTopMenuClick(player, event.getSlot(), menu);
         }
     }
 
+    @EventHandler
+    public void onInventoryDrag(InventoryDragEvent event) {
+        // Keep items from being dragged into a menu
+        if (event.getInventory().getHolder() instanceof LotteryMenu) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler
+    public void onInventoryClose(InventoryCloseEvent event) {
+        InventoryHolder holder = event.getInventory().getHolder();
+        if (holder instanceof LotteryMenu) {
+            openMenus.remove(event.getPlayer().getUniqueId(), holder);
+        }
+    }
+
+    /**
+     * Stop refreshing a player's menu, after they left.
+     * @param playerId The player UUID
+     */
+    public void forgetPlayer(UUID playerId) {
+        openMenus.remove(playerId);
+    }
+
     private void handleMainMenuClick(Player player, int slot) {
         // Currency entries are at slots 10, 12, 14, 16
         if (slot == 10 || slot == 12 || slot == 14 || slot == 16) {
@@ -167,15 +392,27 @@ public class LotteryGUI implements Listener {
             return;
         }
 
+        // Ranking button is at slot 26
+        if (slot == 26) {
+            openTopMenu(player, currency, 0);
+            return;
+        }
+
         // Entry options are at slots 10-15
         if (slot >= 10 && slot <= 15) {
-            long[] amounts = getEntryAmounts(currency.getBalance(player));
+            // Same balance the menu was built from; the entry itself checks the real balance
+            long playerBalance = currency.getDisplayBalance(player);
+            long[] amounts = getEntryAmounts(playerBalance);
             int index = slot - 10;
 
             if (index < amounts.length) {
                 long amount = amounts[index];
 
-                if (amount <= currency.getBalance(player)) {
+                if (amount > 0 && amount <= playerBalance) {
+                    if (!plugin.getRateLimiter().tryAcquire(player, RateLimiter.Action.ENTER)) {
+                        return;
+                    }
+
                     player.closeInventory();
 
                     // Add entry
@@ -186,46 +423,15 @@ public class LotteryGUI implements Listener {
         }
     }}
 
-    @EventHandler
-    public void onInventoryClose(InventoryCloseEvent event) {
-        if (event.getPlayer() instanceof Player) {
-            playerStates.remove((Player) event.getPlayer());
-        }
-    }
-
-    private ItemStack createItem(Material material, String name, String... lore) {
-        ItemStack item = new ItemStack(material);
-        ItemMeta meta = item.getItemMeta();
-
-        if (meta != null) {
-            meta.setDisplayName(name);
-
-            if (lore.length > 0) {
-                List<String> loreList = new ArrayList<>();
-                for (String line : lore) {
-                    loreList.add(line);
-                }
-                meta.setLore(loreList);
-            }
-
-            item.setItemMeta(meta);
-        }
-
-        return item;
-    }
-
-    private Material getMaterialForCurrency(Currency currency) {
-        String id = currency.getId();
-
-        if (id.contains("coin") || id.equalsIgnoreCase("vault")) {
-            return Material.GOLD_INGOT;
-        } else if (id.contains("token")) {
-            return Material.EMERALD;
-        } else if (id.contains("gem")) {
-            return Material.DIAMOND;
+    private void handleTopMenuClick(Player player, int slot, LotteryMenu menu) {
+        // Page buttons are at slots 18 and 26, the back button at slot 22
+        if (slot == 18) {
+            openTopMenu(player, menu.getCurrency(), menu.getPage() - 1);
+        } else if (slot == 26) {
+            openTopMenu(player, menu.getCurrency(), menu.getPage() + 1);
+        } else if (slot == 22) {
+            openMainMenu(player);
         }
-
-        return Material.PAPER;
     }
 
     private long[] getEntryAmounts(long playerBalance) {
@@ -240,31 +446,4 @@ public class LotteryGUI implements Listener {
             return new long[]{1000, 5000, 10000, 25000, 50000, playerBalance};
         }
     }
-
-    private enum GUIType {
-        MAIN_MENU,
-        ENTRY_MENU
-    }
-
-    private static class GUIState {
-        private final GUIType type;
-        private final Currency currency;
-
-        public GUIState(GUIType type) {
-            this(type, null);
-        }
-
-        public GUIState(GUIType type, Currency currency) {
-            this.type = type;
-            this.currency = currency;
-        }
-
-        public GUIType getType() {
-            return type;
-        }
-
-        public Currency getCurrency() {
-            return currency;
-        }
-    }
-}
\ No newline at end of file
+}
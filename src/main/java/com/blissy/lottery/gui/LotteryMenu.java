@@ -0,0 +1,128 @@
+package com.blissy.lottery.gui;
+
+import com.blissy.lottery.currency.Currency;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Holder of an open lottery menu's inventory, carrying the menu's state.
+ * Lottery menus are recognised by their holder, so clicks in other inventories
+ * are rejected with a single type check. One inventory is reused as the player
+ * moves between menus, and slots are only written when what they show changes.
+ */
+class LotteryMenu implements InventoryHolder {
+    /**
+     * The kinds of lottery menu.
+     */
+    enum Type {
+        MAIN_MENU,
+        ENTRY_MENU,
+        TOP_MENU
+    }
+
+    private Type type;
+    private Currency currency;
+    private int page;
+    private Inventory inventory;
+
+    // What each slot currently shows, to skip writes that change nothing
+    private ItemStack[] shownTemplates;
+    private Object[] shownLore;
+
+    /**
+     * Get the kind of menu.
+     * @return The menu type
+     */
+    Type getType() {
+        return type;
+    }
+
+    /**
+     * Get the currency an entry menu is for.
+     * @return The currency, or null for the main menu
+     */
+    Currency getCurrency() {
+        return currency;
+    }
+
+    /**
+     * Get the page of a paginated menu.
+     * @return The page, starting at 0
+     */
+    int getPage() {
+        return page;
+    }
+
+    /**
+     * Switch to another menu, emptying the inventory if the menu changes.
+     * @param type The menu type
+     * @param currency The currency for an entry menu, or null
+     */
+    void show(Type type, Currency currency) {
+        show(type, currency, 0);
+    }
+
+    /**
+     * Switch to another menu or page, emptying the inventory if either changes.
+     * @param type The menu type
+     * @param currency The currency the menu is for, or null
+     * @param page The page, starting at 0
+     */
+    void show(Type type, Currency currency, int page) {
+        if (this.type == type && this.currency == currency && this.page == page) {
+            return;
+        }
+
+        this.type = type;
+        this.currency = currency;
+        this.page = page;
+        inventory.clear();
+        shownTemplates = new ItemStack[inventory.getSize()];
+        shownLore = new Object[inventory.getSize()];
+    }
+
+    /**
+     * Show an item in a slot, unless the slot already shows it.
+     * @param slot The slot
+     * @param template The item's template
+     * @param lore Lore to apply to a copy of the template, or null to show the template as it is
+     */
+    void setItem(int slot, ItemStack template, List<String> lore) {
+        if (shownTemplates[slot] == template && Objects.equals(shownLore[slot], lore)) {
+            return;
+        }
+
+        inventory.setItem(slot, lore != null ? MenuItems.withLore(template, lore) : template);
+        shownTemplates[slot] = template;
+        shownLore[slot] = lore;
+    }
+
+    /**
+     * Empty a slot.
+     * @param slot The slot
+     */
+    void clearItem(int slot) {
+        if (shownTemplates[slot] == null) {
+            return;
+        }
+
+        inventory.setItem(slot, null);
+        shownTemplates[slot] = null;
+        shownLore[slot] = null;
+    }
+
+    void setInventory(Inventory inventory) {
+        this.inventory = inventory;
+        this.shownTemplates = new ItemStack[inventory.getSize()];
+        this.shownLore = new Object[inventory.getSize()];
+    }
+
+    @Override
+    public Inventory getInventory() {
+        return inventory;
+    }
+}
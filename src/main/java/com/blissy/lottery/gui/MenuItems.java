@@ -0,0 +1,201 @@
+package com.blissy.lottery.gui;
+
+import com.blissy.lottery.currency.Currency;
+import com.blissy.lottery.ledger.TopEntrants;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Item templates for the lottery menus.
+ * Items are built once and cloned when placed; only lore that shows changing
+ * values is applied to the clone. Main thread only.
+ */
+class MenuItems {
+    private final Map<String, ItemStack> templates = new HashMap<>();
+
+    // Entrant heads per currency, built for one ranking and dropped when it changes
+    private final Map<String, RankingItems> rankings = new HashMap<>();
+
+    /**
+     * Get the clock showing the next drawing.
+     * @return The template
+     */
+    ItemStack info() {
+        return templates.computeIfAbsent("info", key -> create(Material.CLOCK, ChatColor.GOLD + "Lottery Information"));
+    }
+
+    /**
+     * Get a currency's lottery item.
+     * @param currency The currency
+     * @return The template
+     */
+    ItemStack currency(Currency currency) {
+        return templates.computeIfAbsent("currency:" + currency.getId(), key -> create(materialFor(currency),
+                currency.getColoredName() + ChatColor.GOLD + " Lottery"));
+    }
+
+    /**
+     * Get the button that enters a currency's lottery with a preset amount.
+     * @param currency The currency
+     * @param amount The amount
+     * @return The item
+     */
+    ItemStack entryButton(Currency currency, long amount) {
+        return templates.computeIfAbsent("entry:" + currency.getId() + ":" + amount,
+                key -> button(currency, amount));
+    }
+
+    /**
+     * Get the button that enters a currency's lottery with a player's whole balance.
+     * The amount is shown in the lore, which differs between players.
+     * @param currency The currency
+     * @return The template
+     */
+    ItemStack allInButton(Currency currency) {
+        return templates.computeIfAbsent("all:" + currency.getId(), key -> create(Material.GOLD_INGOT,
+                ChatColor.GOLD + "Enter with your whole balance"));
+    }
+
+    private static ItemStack button(Currency currency, long amount) {
+        return create(Material.GOLD_INGOT,
+                ChatColor.GOLD + "Enter with " + currency.formatAmount(amount),
+                ChatColor.YELLOW + "Click to enter the lottery with " + currency.formatAmount(amount));
+    }
+
+    /**
+     * Get the button back to the main menu.
+     * @return The template
+     */
+    ItemStack backButton() {
+        return templates.computeIfAbsent("back", key -> create(Material.ARROW,
+                ChatColor.RED + "Back to Main Menu",
+                ChatColor.GRAY + "Click to return to the main lottery menu"));
+    }
+
+    /**
+     * Get the button that shows a currency's largest entrants.
+     * @return The template
+     */
+    ItemStack topButton() {
+        return templates.computeIfAbsent("top", key -> create(Material.BOOK,
+                ChatColor.GOLD + "Biggest Entrants",
+                ChatColor.GRAY + "Click to see who has entered the most"));
+    }
+
+    /**
+     * Get the button to the previous page.
+     * @return The template
+     */
+    ItemStack previousPage() {
+        return templates.computeIfAbsent("previous", key -> create(Material.ARROW, ChatColor.YELLOW + "Previous Page"));
+    }
+
+    /**
+     * Get the button to the next page.
+     * @return The template
+     */
+    ItemStack nextPage() {
+        return templates.computeIfAbsent("next", key -> create(Material.ARROW, ChatColor.YELLOW + "Next Page"));
+    }
+
+    /**
+     * Get the head showing an entrant's place in a ranking.
+     * Heads are built the first time they are shown and kept until the ranking changes.
+     * @param currency The currency
+     * @param ranking The ranking
+     * @param index The entrant's index in the ranking
+     * @return The item
+     */
+    ItemStack entrant(Currency currency, List<TopEntrants.Entrant> ranking, int index) {
+        RankingItems items = rankings.get(currency.getId());
+        if (items == null || items.ranking != ranking) {
+            items = new RankingItems(ranking);
+            rankings.put(currency.getId(), items);
+        }
+
+        if (items.heads[index] == null) {
+            TopEntrants.Entrant entrant = ranking.get(index);
+            String name = Bukkit.getOfflinePlayer(entrant.getPlayerId()).getName();
+            items.heads[index] = create(Material.PLAYER_HEAD,
+                    ChatColor.GOLD + "#" + (index + 1) + " " + ChatColor.WHITE +
+                            (name != null ? name : entrant.getPlayerId().toString()),
+                    ChatColor.YELLOW + "Entered: " + ChatColor.WHITE + currency.formatAmount(entrant.getAmount()));
+        }
+        return items.heads[index];
+    }
+
+    /**
+     * Forget every template, after currencies or their names change.
+     */
+    void clear() {
+        templates.clear();
+        rankings.clear();
+    }
+
+    /**
+     * Copy a template with different lore.
+     * @param template The template
+     * @param lore The lore
+     * @return The copy
+     */
+    static ItemStack withLore(ItemStack template, List<String> lore) {
+        ItemStack item = template.clone();
+        ItemMeta meta = item.getItemMeta();
+
+        if (meta != null) {
+            meta.setLore(lore);
+            item.setItemMeta(meta);
+        }
+
+        return item;
+    }
+
+    private static ItemStack create(Material material, String name, String... lore) {
+        ItemStack item = new ItemStack(material);
+        ItemMeta meta = item.getItemMeta();
+
+        if (meta != null) {
+            meta.setDisplayName(name);
+
+            if (lore.length > 0) {
+                meta.setLore(Arrays.asList(lore));
+            }
+
+            item.setItemMeta(meta);
+        }
+
+        return item;
+    }
+
+    private static final class RankingItems {
+        private final List<TopEntrants.Entrant> ranking;
+        private final ItemStack[] heads;
+
+        private RankingItems(List<TopEntrants.Entrant> ranking) {
+            this.ranking = ranking;
+            this.heads = new ItemStack[ranking.size()];
+        }
+    }
+
+    private static Material materialFor(Currency currency) {
+        String id = currency.getId();
+
+        if (id.contains("coin") || id.equalsIgnoreCase("vault")) {
+            return Material.GOLD_INGOT;
+        } else if (id.contains("token")) {
+            return Material.EMERALD;
+        } else if (id.contains("gem")) {
+            return Material.DIAMOND;
+        }
+
+        return Material.PAPER;
+    }
+}
@@ -0,0 +1,369 @@
+package com.blissy.lottery.ledger;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Lottery entries for one currency, keyed by player UUID.
+ * An open-addressing table storing the UUID halves and amounts in parallel
+ * {@code long[]} arrays, so entries cost no objects, and the running total and
+ * participant count are O(1) reads. Drawings work on a {@link LedgerSnapshot}.
+ *
+ * Thread-safe. Writers take an exclusive lock, so each entry's amount and the
+ * total always change together; the total and participant count are
+ * read optimistically without blocking, and other reads share a read lock.
+ */
+public class EntryLedger {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // A slot is free when its amount is zero; stored amounts are always positive
+    private long[] mostSigBits;
+    private long[] leastSigBits;
+    private long[] amounts;
+    private int mask;
+    private int size;
+    private long total;
+    private final StampedLock lock = new StampedLock();
+
+    public EntryLedger() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public EntryLedger(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Callback for iterating over ledger entries without allocating.
+     */
+    @FunctionalInterface
+    public interface EntryVisitor {
+        /**
+         * Visit one entry.
+         * @param mostSigBits The most significant bits of the player UUID
+         * @param leastSigBits The least significant bits of the player UUID
+         * @param amount The amount entered
+         */
+        void visit(long mostSigBits, long leastSigBits, long amount);
+    }
+
+    /**
+     * Get a player's entry amount.
+     * @param playerId The player UUID
+     * @return The amount, or 0 if the player has no entries
+     */
+    public long get(UUID playerId) {
+        long stamp = lock.readLock();
+        try {
+            int slot = find(playerId.getMostSignificantBits(), playerId.getLeastSignificantBits());
+            return slot >= 0 ? amounts[slot] : 0L;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Add to a player's entry amount.
+     * @param playerId The player UUID
+     * @param amount The amount to add (must be positive)
+     * @return The player's new amount
+     */
+    public long add(UUID playerId, long amount) {
+        return add(playerId.getMostSignificantBits(), playerId.getLeastSignificantBits(), amount);
+    }
+
+    /**
+     * Add to a player's entry amount.
+     * @param msb The most significant bits of the player UUID
+     * @param lsb The least significant bits of the player UUID
+     * @param amount The amount to add (must be positive)
+     * @return The player's new amount
+     */
+    public long add(long msb, long lsb, long amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Entry amount must be positive: " + amount);
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            return addLocked(msb, lsb, amount);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Add a batch of entries in one step.
+     * An entry that would overflow its player's amount is skipped; the rest are added.
+     * @param msb The most significant bits of each player UUID
+     * @param lsb The least significant bits of each player UUID
+     * @param amounts The amount to add for each entry (must be positive)
+     * @param count The number of entries
+     * @return Whether each entry was added
+     */
+    public boolean[] addAll(long[] msb, long[] lsb, long[] amounts, int count) {
+        for (int i = 0; i < count; i++) {
+            if (amounts[i] <= 0) {
+                throw new IllegalArgumentException("Entry amount must be positive: " + amounts[i]);
+            }
+        }
+
+        boolean[] added = new boolean[count];
+        long stamp = lock.writeLock();
+        try {
+            for (int i = 0; i < count; i++) {
+                try {
+                    addLocked(msb[i], lsb[i], amounts[i]);
+                    added[i] = true;
+                } catch (ArithmeticException e) {
+                    // Only an existing amount can overflow, so nothing was changed
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return added;
+    }
+
+    private long addLocked(long msb, long lsb, long amount) {
+        int slot = find(msb, lsb);
+        if (slot < 0) {
+            if ((size + 1) * 2 > amounts.length) {
+                rehash(amounts.length << 1);
+            }
+
+            slot = freeSlot(msb, lsb);
+            mostSigBits[slot] = msb;
+            leastSigBits[slot] = lsb;
+            size++;
+        }
+
+        long updated = Math.addExact(amounts[slot], amount);
+        amounts[slot] = updated;
+        total += amount;
+        return updated;
+    }
+
+    /**
+     * Remove a player's entries.
+     * @param playerId The player UUID
+     * @return The amount that was removed, or 0 if the player had no entries
+     */
+    public long remove(UUID playerId) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = find(playerId.getMostSignificantBits(), playerId.getLeastSignificantBits());
+            if (slot < 0) {
+                return 0L;
+            }
+
+            long removed = amounts[slot];
+            total -= removed;
+            size--;
+            deleteSlot(slot);
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove every entry.
+     */
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            Arrays.fill(amounts, 0L);
+            size = 0;
+            total = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Get the number of players with entries.
+     * @return The participant count
+     */
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int count = size;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                count = size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Check if the ledger has no entries.
+     * @return True if empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Get the sum of all entry amounts.
+     * @return The pool total
+     */
+    public long total() {
+        long stamp = lock.tryOptimisticRead();
+        long sum = total;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                sum = total;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Visit every entry in table order.
+     * The visitor runs under the read lock and must not modify this ledger.
+     * @param visitor The visitor
+     */
+    public void forEach(EntryVisitor visitor) {
+        long stamp = lock.readLock();
+        try {
+            for (int slot = 0; slot < amounts.length; slot++) {
+                if (amounts[slot] != 0) {
+                    visitor.visit(mostSigBits[slot], leastSigBits[slot], amounts[slot]);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Copy the entries into a map.
+     * @return Map of player UUIDs to entry amounts
+     */
+    public Map<UUID, Long> toMap() {
+        Map<UUID, Long> map = new HashMap<>(size() * 2);
+        forEach((msb, lsb, amount) -> map.put(new UUID(msb, lsb), amount));
+        return map;
+    }
+
+    /**
+     * Take an immutable, compact copy of the entries.
+     * @return The snapshot
+     */
+    public LedgerSnapshot snapshot() {
+        long stamp = lock.readLock();
+        try {
+            return snapshotLocked();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private LedgerSnapshot snapshotLocked() {
+        long[] snapshotMostSigBits = new long[size];
+        long[] snapshotLeastSigBits = new long[size];
+        long[] snapshotAmounts = new long[size];
+        int index = 0;
+
+        for (int slot = 0; slot < amounts.length; slot++) {
+            if (amounts[slot] != 0) {
+                snapshotMostSigBits[index] = mostSigBits[slot];
+                snapshotLeastSigBits[index] = leastSigBits[slot];
+                snapshotAmounts[index] = amounts[slot];
+                index++;
+            }
+        }
+
+        return LedgerSnapshot.of(snapshotMostSigBits, snapshotLeastSigBits, snapshotAmounts, size, total);
+    }
+
+    private int find(long msb, long lsb) {
+        for (int slot = home(msb, lsb); amounts[slot] != 0; slot = (slot + 1) & mask) {
+            if (mostSigBits[slot] == msb && leastSigBits[slot] == lsb) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int freeSlot(long msb, long lsb) {
+        int slot = home(msb, lsb);
+        while (amounts[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void deleteSlot(int slot) {
+        // Backward-shift deletion keeps probe chains intact without tombstones
+        int hole = slot;
+        int next = (hole + 1) & mask;
+
+        while (amounts[next] != 0) {
+            int home = home(mostSigBits[next], leastSigBits[next]);
+            boolean movable = hole <= next
+                    ? home <= hole || home > next
+                    : home <= hole && home > next;
+
+            if (movable) {
+                mostSigBits[hole] = mostSigBits[next];
+                leastSigBits[hole] = leastSigBits[next];
+                amounts[hole] = amounts[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+
+        amounts[hole] = 0L;
+    }
+
+    private int home(long msb, long lsb) {
+        long hash = msb ^ lsb;
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) hash & mask;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldMostSigBits = mostSigBits;
+        long[] oldLeastSigBits = leastSigBits;
+        long[] oldAmounts = amounts;
+
+        allocate(capacity);
+
+        for (int slot = 0; slot < oldAmounts.length; slot++) {
+            if (oldAmounts[slot] != 0) {
+                int target = freeSlot(oldMostSigBits[slot], oldLeastSigBits[slot]);
+                mostSigBits[target] = oldMostSigBits[slot];
+                leastSigBits[target] = oldLeastSigBits[slot];
+                amounts[target] = oldAmounts[slot];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        mostSigBits = new long[capacity];
+        leastSigBits = new long[capacity];
+        amounts = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
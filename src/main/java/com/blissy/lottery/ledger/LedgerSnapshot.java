@@ -0,0 +1,122 @@
+package com.blissy.lottery.ledger;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Immutable, compact copy of an {@link EntryLedger}.
+ * Safe to hand to other threads for persistence or drawing.
+ */
+public final class LedgerSnapshot {
+    private static final LedgerSnapshot EMPTY = new LedgerSnapshot(new long[0], new long[0], new long[0], 0L);
+
+    private final long[] mostSigBits;
+    private final long[] leastSigBits;
+    private final long[] amounts;
+    private final long total;
+
+    LedgerSnapshot(long[] mostSigBits, long[] leastSigBits, long[] amounts, long total) {
+        this.mostSigBits = mostSigBits;
+        this.leastSigBits = leastSigBits;
+        this.amounts = amounts;
+        this.total = total;
+    }
+
+    /**
+     * Get an empty snapshot.
+     * @return The empty snapshot
+     */
+    public static LedgerSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Get the number of entries.
+     * @return The participant count
+     */
+    public int size() {
+        return amounts.length;
+    }
+
+    /**
+     * Get the sum of all entry amounts.
+     * @return The pool total
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * Get the most significant bits of an entry's player UUID.
+     * @param index The entry index
+     * @return The most significant bits
+     */
+    public long mostSigBits(int index) {
+        return mostSigBits[index];
+    }
+
+    /**
+     * Get the least significant bits of an entry's player UUID.
+     * @param index The entry index
+     * @return The least significant bits
+     */
+    public long leastSigBits(int index) {
+        return leastSigBits[index];
+    }
+
+    /**
+     * Get an entry's player UUID.
+     * @param index The entry index
+     * @return The player UUID
+     */
+    public UUID playerId(int index) {
+        return new UUID(mostSigBits[index], leastSigBits[index]);
+    }
+
+    /**
+     * Get an entry's amount.
+     * @param index The entry index
+     * @return The amount
+     */
+    public long amount(int index) {
+        return amounts[index];
+    }
+
+    /**
+     * Visit every entry in order.
+     * @param visitor The visitor
+     */
+    public void forEach(EntryLedger.EntryVisitor visitor) {
+        for (int i = 0; i < amounts.length; i++) {
+            visitor.visit(mostSigBits[i], leastSigBits[i], amounts[i]);
+        }
+    }
+
+    /**
+     * Wrap parallel arrays of unique entries without copying them.
+     * The arrays must not be modified afterwards.
+     * @param mostSigBits The most significant bits of each player UUID
+     * @param leastSigBits The least significant bits of each player UUID
+     * @param amounts The amount of each entry
+     * @return The snapshot
+     */
+    public static LedgerSnapshot wrap(long[] mostSigBits, long[] leastSigBits, long[] amounts) {
+        if (mostSigBits.length != amounts.length || leastSigBits.length != amounts.length) {
+            throw new IllegalArgumentException("Entry arrays must have the same length");
+        }
+
+        long total = 0;
+        for (long amount : amounts) {
+            total = Math.addExact(total, amount);
+        }
+        return amounts.length == 0 ? EMPTY : new LedgerSnapshot(mostSigBits, leastSigBits, amounts, total);
+    }
+
+    static LedgerSnapshot of(long[] mostSigBits, long[] leastSigBits, long[] amounts, int size, long total) {
+        return size == 0 ? EMPTY : new LedgerSnapshot(
+                Arrays.copyOf(mostSigBits, size),
+                Arrays.copyOf(leastSigBits, size),
+                Arrays.copyOf(amounts, size),
+                total);
+    }
+}
@@ -0,0 +1,115 @@
+package com.blissy.lottery.ledger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * The players with the largest entries in one pool, up to a fixed number.
+ * A sorted set ranks the entrants and a map finds a player's current rank, so an
+ * update costs O(log k) however large the pool is. Entries only grow until the
+ * pool is cleared, so a player who drops out of the ranking can only get back in
+ * through an update that carries their new total.
+ *
+ * Not thread-safe; the lottery updates and reads it on the main thread.
+ */
+public class TopEntrants {
+    private static final Comparator<Entrant> RANKING = Comparator
+            .comparingLong(Entrant::getAmount).reversed()
+            .thenComparing(Entrant::getPlayerId);
+
+    private final int capacity;
+    private final TreeSet<Entrant> ranking = new TreeSet<>(RANKING);
+    private final Map<UUID, Entrant> byPlayer = new HashMap<>();
+    private List<Entrant> snapshot = Collections.emptyList();
+    private boolean changed;
+
+    /**
+     * Create an empty ranking.
+     * @param capacity The number of entrants to keep
+     */
+    public TopEntrants(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Record a player's total entry.
+     * @param playerId The player UUID
+     * @param total The player's total in the pool
+     */
+    public void update(UUID playerId, long total) {
+        Entrant current = byPlayer.get(playerId);
+        if (current == null ? total <= 0 : current.amount == total) {
+            return;
+        }
+
+        Entrant entrant = new Entrant(playerId, total);
+        if (current != null) {
+            ranking.remove(current);
+            byPlayer.remove(playerId);
+        } else if (ranking.size() >= capacity) {
+            // Full, so the new entrant has to beat the last place
+            Entrant last = ranking.last();
+            if (RANKING.compare(entrant, last) >= 0) {
+                return;
+            }
+            ranking.pollLast();
+            byPlayer.remove(last.playerId);
+        }
+
+        if (total > 0) {
+            ranking.add(entrant);
+            byPlayer.put(playerId, entrant);
+        }
+        changed = true;
+    }
+
+    /**
+     * Remove every entrant, after the pool was drawn.
+     */
+    public void clear() {
+        ranking.clear();
+        byPlayer.clear();
+        changed = true;
+    }
+
+    /**
+     * Get the entrants from largest to smallest entry.
+     * The same list is returned until the ranking changes, so callers can cache
+     * anything they build from it against its identity.
+     * @return An unmodifiable list of entrants
+     */
+    public List<Entrant> snapshot() {
+        if (changed) {
+            snapshot = Collections.unmodifiableList(new ArrayList<>(ranking));
+            changed = false;
+        }
+        return snapshot;
+    }
+
+    /**
+     * A player's place in the ranking.
+     */
+    public static final class Entrant {
+        private final UUID playerId;
+        private final long amount;
+
+        private Entrant(UUID playerId, long amount) {
+            this.playerId = playerId;
+            this.amount = amount;
+        }
+
+        public UUID getPlayerId() {
+            return playerId;
+        }
+
+        public long getAmount() {
+            return amount;
+        }
+    }
+}
@@ -2,9 +2,12 @@ package com.blissy.lottery.listeners;
 
 import com.blissy.lottery.Lottery;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
-import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 
 public class PlayerListener implements Listener {
     private final Lottery plugin;
@@ -13,16 +16,37 @@ public class PlayerListener implements Listener {
         this.plugin = plugin;
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+
+        // Read rewards on the login thread so the join only has to pay them out
+        plugin.getLotteryManager().prefetchOfflineRewards(event.getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLogin(PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            plugin.getLotteryManager().releaseStagedRewards(event.getPlayer().getUniqueId());
+        }
+    }
+
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
-        // Process offline rewards after a short delay (to ensure all plugins are loaded)
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (event.getPlayer().isOnline()) {
-                    plugin.getLotteryManager().processOfflineRewards(event.getPlayer());
-                }
-            }
-        }.runTaskLater(plugin, 60); // 3 seconds delay
+        // Most players have nothing waiting
+        if (!plugin.getLotteryManager().hasPendingRewards(event.getPlayer().getUniqueId())) {
+            return;
+        }
+
+        plugin.getLotteryManager().processOfflineRewards(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        plugin.getCurrencyManager().forgetPlayer(event.getPlayer().getUniqueId());
+        plugin.getRateLimiter().forget(event.getPlayer().getUniqueId());
+        plugin.getLotteryGUI().forgetPlayer(event.getPlayer().getUniqueId());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,283 @@
+package com.blissy.lottery.managers;
+
+import com.blissy.lottery.currency.AsyncCurrency;
+import com.blissy.lottery.currency.TransactionResult;
+import com.blissy.lottery.ledger.EntryLedger;
+import com.blissy.lottery.storage.LotteryStore;
+import com.blissy.lottery.utils.MainThreadCallbacks;
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+/**
+ * Accepts lottery entries immediately and applies them in batches.
+ * Each tick moves the submitted entries into per-currency backlogs and sends
+ * them to the currency as bulk withdrawals, until the tick's time budget is used
+ * up. When a batch's withdrawals complete, its entries are credited to the ledger
+ * in one step on the main thread, recorded to storage with one write, and their
+ * players are confirmed.
+ */
+public class EntryQueue extends BukkitRunnable {
+    private static final int BATCH_SIZE = 64;
+
+    private final Plugin plugin;
+    private final Function<String, EntryLedger> ledgers;
+    private final LotteryStore store;
+    private final MainThreadCallbacks callbacks;
+    private final BooleanSupplier open;
+    private final BiConsumer<String, Map<UUID, Long>> committed;
+    private final long budgetNanos;
+
+    private final Queue<EntryRequest> submitted = new ConcurrentLinkedQueue<>();
+
+    // Main thread only
+    private final Map<String, Deque<EntryRequest>> backlog = new LinkedHashMap<>();
+
+    /**
+     * Create a queue.
+     * @param plugin The plugin
+     * @param ledgers Gets the ledger for a currency ID
+     * @param store Records the committed entries
+     * @param callbacks Runs completed withdrawals on the main thread
+     * @param open Whether entries can currently be credited
+     * @param committed Called on the main thread with each currency ID and the amounts credited to it
+     * @param budgetMillis Milliseconds per tick to spend sending withdrawals
+     */
+    public EntryQueue(Plugin plugin, Function<String, EntryLedger> ledgers, LotteryStore store,
+                      MainThreadCallbacks callbacks, BooleanSupplier open,
+                      BiConsumer<String, Map<UUID, Long>> committed, long budgetMillis) {
+        this.plugin = plugin;
+        this.ledgers = ledgers;
+        this.store = store;
+        this.callbacks = callbacks;
+        this.open = open;
+        this.committed = committed;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, budgetMillis));
+    }
+
+    /**
+     * Start draining the queue every tick.
+     * @return This queue
+     */
+    public EntryQueue start() {
+        runTaskTimer(plugin, 1, 1);
+        return this;
+    }
+
+    /**
+     * Queue an entry. Safe to call from any thread.
+     * @param currency The currency
+     * @param player The player
+     * @param amount The amount (must be positive)
+     */
+    public void submit(AsyncCurrency currency, Player player, long amount) {
+        submitted.add(new EntryRequest(currency, player, amount));
+    }
+
+    @Override
+    public void run() {
+        drain(System.nanoTime() + budgetNanos);
+    }
+
+    /**
+     * Send every queued entry now, for use when the plugin is shutting down.
+     * The withdrawals still in flight complete through the callbacks.
+     */
+    public void finish() {
+        try {
+            cancel();
+        } catch (IllegalStateException e) {
+            // Not scheduled yet
+        }
+
+        drain(Long.MAX_VALUE);
+    }
+
+    private void drain(long deadline) {
+        EntryRequest request;
+        while ((request = submitted.poll()) != null) {
+            backlog.computeIfAbsent(request.currency.getId(), id -> new ArrayDeque<>()).add(request);
+        }
+
+        // Always send at least one batch so the queue keeps moving
+        boolean first = true;
+        for (Deque<EntryRequest> requests : backlog.values()) {
+            while (!requests.isEmpty() && (first || System.nanoTime() < deadline)) {
+                first = false;
+                sendBatch(requests);
+            }
+        }
+
+        backlog.values().removeIf(Queue::isEmpty);
+    }
+
+    private void sendBatch(Deque<EntryRequest> requests) {
+        // One withdrawal per player per batch; a player's later entries go in the next one
+        Map<UUID, EntryRequest> batch = new LinkedHashMap<>();
+        List<EntryRequest> deferred = new ArrayList<>();
+
+        while (batch.size() < BATCH_SIZE && !requests.isEmpty()) {
+            EntryRequest request = requests.poll();
+
+            // Left before it was their turn; nothing has been taken
+            if (!request.player.isOnline()) {
+                continue;
+            }
+
+            if (batch.putIfAbsent(request.player.getUniqueId(), request) != null) {
+                deferred.add(request);
+            }
+        }
+
+        for (int i = deferred.size() - 1; i >= 0; i--) {
+            requests.addFirst(deferred.get(i));
+        }
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        AsyncCurrency currency = batch.values().iterator().next().currency;
+        Map<UUID, Long> amounts = new LinkedHashMap<>();
+        for (Map.Entry<UUID, EntryRequest> entry : batch.entrySet()) {
+            amounts.put(entry.getKey(), entry.getValue().amount);
+        }
+
+        callbacks.whenDone(currency.withdrawAll(amounts), (results, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to withdraw lottery entries", error);
+                for (EntryRequest request : batch.values()) {
+                    sendFailure(request, TransactionResult.FAILED);
+                }
+                return;
+            }
+
+            commit(currency, batch, results);
+        });
+    }
+
+    private void commit(AsyncCurrency currency, Map<UUID, EntryRequest> batch, Map<UUID, TransactionResult> results) {
+        List<EntryRequest> withdrawn = new ArrayList<>(batch.size());
+        for (Map.Entry<UUID, EntryRequest> entry : batch.entrySet()) {
+            TransactionResult result = results.getOrDefault(entry.getKey(), TransactionResult.FAILED);
+            if (result == TransactionResult.SUCCESS) {
+                withdrawn.add(entry.getValue());
+            } else {
+                sendFailure(entry.getValue(), result);
+            }
+        }
+
+        if (withdrawn.isEmpty()) {
+            return;
+        }
+
+        // A drawing started while the withdrawals were running
+        if (!open.getAsBoolean()) {
+            refund(currency, withdrawn, ChatColor.RED +
+                    "The lottery drawing is taking place, please try again in a moment.");
+            return;
+        }
+
+        int count = withdrawn.size();
+        long[] mostSigBits = new long[count];
+        long[] leastSigBits = new long[count];
+        long[] amounts = new long[count];
+        for (int i = 0; i < count; i++) {
+            UUID playerId = withdrawn.get(i).player.getUniqueId();
+            mostSigBits[i] = playerId.getMostSignificantBits();
+            leastSigBits[i] = playerId.getLeastSignificantBits();
+            amounts[i] = withdrawn.get(i).amount;
+        }
+
+        boolean[] added = ledgers.apply(currency.getId()).addAll(mostSigBits, leastSigBits, amounts, count);
+
+        Map<UUID, Long> recorded = new LinkedHashMap<>();
+        List<EntryRequest> failed = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            EntryRequest request = withdrawn.get(i);
+            if (added[i]) {
+                recorded.put(request.player.getUniqueId(), request.amount);
+            } else {
+                failed.add(request);
+            }
+        }
+        store.recordEntries(currency.getId(), recorded);
+        if (!recorded.isEmpty()) {
+            committed.accept(currency.getId(), recorded);
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (added[i]) {
+                EntryRequest request = withdrawn.get(i);
+                request.player.sendMessage(ChatColor.GREEN + "You have entered the " + currency.getColoredName() +
+                        ChatColor.GREEN + " lottery with " + currency.formatAmount(request.amount) + "!");
+            }
+        }
+
+        // Give the money back if it could not be entered
+        if (!failed.isEmpty()) {
+            refund(currency, failed, ChatColor.RED + "Your entry could not be added, your " + currency.getName() +
+                    " has been refunded.");
+        }
+    }
+
+    private void refund(AsyncCurrency currency, List<EntryRequest> requests, String message) {
+        Map<UUID, Long> amounts = new LinkedHashMap<>();
+        for (EntryRequest request : requests) {
+            amounts.put(request.player.getUniqueId(), request.amount);
+            request.player.sendMessage(message);
+        }
+
+        callbacks.whenDone(currency.depositAll(amounts), (results, error) -> {
+            for (Map.Entry<UUID, Long> entry : amounts.entrySet()) {
+                if (error != null || results.get(entry.getKey()) != TransactionResult.SUCCESS) {
+                    plugin.getLogger().severe("Failed to refund lottery entry of " +
+                            currency.formatAmount(entry.getValue()) + " to " + entry.getKey());
+                }
+            }
+        });
+    }
+
+    private void sendFailure(EntryRequest request, TransactionResult result) {
+        AsyncCurrency currency = request.currency;
+        switch (result) {
+            case OFFLINE:
+                break;
+            case INSUFFICIENT_FUNDS:
+                request.player.sendMessage(ChatColor.RED + "You don't have enough " + currency.getName() + "!");
+                break;
+            default:
+                request.player.sendMessage(ChatColor.RED + "Failed to withdraw " +
+                        currency.formatAmount(request.amount) + "!");
+                break;
+        }
+    }
+
+    private static final class EntryRequest {
+        private final AsyncCurrency currency;
+        private final Player player;
+        private final long amount;
+
+        private EntryRequest(AsyncCurrency currency, Player player, long amount) {
+            this.currency = currency;
+            this.player = player;
+            this.amount = amount;
+        }
+    }
+}
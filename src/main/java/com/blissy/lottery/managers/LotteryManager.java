@@ -1,47 +1,90 @@
 package com.blissy.lottery.managers;
 
 import com.blissy.lottery.Lottery;
+import com.blissy.lottery.currency.AsyncCurrency;
 import com.blissy.lottery.currency.Currency;
+import com.blissy.lottery.currency.TransactionResult;
+import com.blissy.lottery.draw.DrawResult;
+import com.blissy.lottery.draw.ParallelDrawer;
+import com.blissy.lottery.draw.PoolDraw;
+import com.blissy.lottery.ledger.EntryLedger;
+import com.blissy.lottery.ledger.LedgerSnapshot;
+import com.blissy.lottery.ledger.TopEntrants;
+import com.blissy.lottery.storage.AtomicFiles;
+import com.blissy.lottery.storage.FileLotteryStore;
+import com.blissy.lottery.storage.LotteryState;
+import com.blissy.lottery.storage.LotteryStore;
+import com.blissy.lottery.storage.OfflineReward;
+import com.blissy.lottery.storage.SqlLotteryStore;
+import com.blissy.lottery.storage.YamlSnapshotFormat;
+import com.blissy.lottery.utils.MainThreadCallbacks;
+import com.blissy.lottery.utils.TickBudgetRunner;
 import com.blissy.lottery.utils.TimeUtil;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.OfflinePlayer;
-import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.scheduler.BukkitTask;
 
 import java.io.File;
 import java.io.IOException;
+import java.security.SecureRandom;
 import java.time.DayOfWeek;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.TemporalAdjusters;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 public class LotteryManager {
     private final Lottery plugin;
-    private final Map<String, Map<UUID, Long>> entries = new HashMap<>();
-    private LocalDateTime nextDrawingTime;
+    private final Map<String, EntryLedger> entries = new ConcurrentHashMap<>();
+    private volatile LocalDateTime nextDrawingTime;
     private BukkitTask drawingTask;
     private BukkitTask notificationTask;
+    private TickBudgetRunner payoutRunner;
+    private volatile boolean drawingInProgress;
+    private EntryQueue entryQueue;
+    private final MainThreadCallbacks callbacks;
+    private boolean running;
+    private long poolVersion; // changes whenever a pool does, main thread only
+    private final LotteryStore store;
 
-    private final File dataFile;
-    private final File offlineRewardsFolder;
+    // Players with offline rewards waiting, so joins never have to check storage
+    private final Set<UUID> pendingRewards = ConcurrentHashMap.newKeySet();
+
+    // Rewards read during pre-login, waiting for the player to join
+    private final Map<UUID, List<OfflineReward>> stagedRewards = new ConcurrentHashMap<>();
+
+    // Largest entrants per currency, main thread only
+    private final Map<String, TopEntrants> topEntrants = new HashMap<>();
+    private final int topEntrantCount;
 
     // Constants
     private static final long TICKS_PER_MINUTE = 20 * 60;
     private static final long NOTIFICATION_INTERVAL = 30; // minutes
+    private static final long DEFAULT_PAYOUT_TICK_BUDGET = 5; // milliseconds
+    private static final long DEFAULT_ENTRY_TICK_BUDGET = 2; // milliseconds
+    private static final int DEFAULT_TOP_ENTRANTS = 100;
+    private static final long SHUTDOWN_TIMEOUT = 10_000; // milliseconds
+    private static final long DRAWING_RETRY_DELAY = 5; // minutes
 
     public LotteryManager(Lottery plugin) {
         this.plugin = plugin;
-        this.dataFile = new File(plugin.getDataFolder(), "lottery_data.yml");
-        this.offlineRewardsFolder = new File(plugin.getDataFolder(), "offline");
+        this.callbacks = new MainThreadCallbacks(plugin);
+        this.topEntrantCount = plugin.getConfig().getInt("leaderboard.size", DEFAULT_TOP_ENTRANTS);
+
+        // Pick the storage backend
+        if ("sqlite".equalsIgnoreCase(plugin.getConfig().getString("storage.type", "file"))) {
+            this.store = new SqlLotteryStore(plugin, new File(plugin.getDataFolder(), "lottery.db"));
+        } else {
+            this.store = new FileLotteryStore(plugin, this::captureState);
+        }
 
         // Initialize entries map for all currencies
         for (Currency currency : plugin.getCurrencyManager().getAllCurrencies()) {
-            entries.put(currency.getId(), new HashMap<>());
+            entries.put(currency.getId(), new EntryLedger());
         }
 
         // Set default next drawing time
@@ -56,20 +99,30 @@ public class LotteryManager {
      * Start the lottery scheduler tasks.
      */
     public void startScheduler() {
+        running = true;
+
         // Calculate ticks until next drawing
         long ticksUntilDrawing = TimeUtil.getTicksUntil(nextDrawingTime);
 
         // Schedule the drawing task
         drawingTask = Bukkit.getScheduler().runTaskLater(plugin, this::performDrawing, ticksUntilDrawing);
 
-        // Schedule periodic notifications
-        notificationTask = Bukkit.getScheduler().runTaskTimer(
+        // Schedule periodic notifications; they only read the ledgers, so they run off the main thread
+        notificationTask = Bukkit.getScheduler().runTaskTimerAsynchronously(
                 plugin,
                 this::broadcastLotteryStatus,
                 TICKS_PER_MINUTE * 5, // 5 minutes delay
                 TICKS_PER_MINUTE * NOTIFICATION_INTERVAL // Every 30 minutes
         );
 
+        // Start writing changed data in the background
+        store.start();
+
+        // Apply entries in batches every tick
+        entryQueue = new EntryQueue(plugin, id -> entries.computeIfAbsent(id, key -> new EntryLedger()), store,
+                callbacks, () -> !drawingInProgress, this::entriesCommitted,
+                plugin.getConfig().getLong("entries.tick_budget", DEFAULT_ENTRY_TICK_BUDGET)).start();
+
         plugin.getLogger().info("Lottery drawing scheduled for " +
                 DateTimeFormatter.ofPattern("EEEE, MMMM d, yyyy 'at' HH:mm").format(nextDrawingTime));
     }
@@ -78,6 +131,13 @@ public class LotteryManager {
      * Shut down the scheduler tasks.
      */
     public void stopScheduler() {
+        running = false;
+
+        // Don't leave a drawing half paid out
+        if (payoutRunner != null) {
+            payoutRunner.finish();
+        }
+
         if (drawingTask != null) {
             drawingTask.cancel();
         }
@@ -85,6 +145,22 @@ public class LotteryManager {
         if (notificationTask != null) {
             notificationTask.cancel();
         }
+
+        // Apply entries that were already accepted
+        if (entryQueue != null) {
+            entryQueue.finish();
+            entryQueue = null;
+        }
+
+        // Wait for currency operations still in flight, so none of their results are lost
+        callbacks.finish(SHUTDOWN_TIMEOUT);
+
+        // Keep rewards prefetched for logins that have not completed yet
+        for (UUID playerId : new ArrayList<>(stagedRewards.keySet())) {
+            releaseStagedRewards(playerId);
+        }
+
+        store.stop();
     }
 
     /**
@@ -97,39 +173,66 @@ public class LotteryManager {
 
     /**
      * Add a lottery entry for a player.
+     * The entry is queued and applied within a tick or two; the player is told
+     * once it has been entered or why it failed.
      * @param currency The currency being used
      * @param player The player
      * @param amount The amount of currency
-     * @return True if successful, false otherwise
+     * @return True if the entry was queued, false otherwise
      */
     public boolean addEntry(Currency currency, Player player, long amount) {
-        // Check if player has enough currency
-        if (!currency.hasBalance(player, amount)) {
-            player.sendMessage(ChatColor.RED + "You don't have enough " + currency.getName() + "!");
+        if (amount <= 0) {
+            player.sendMessage(ChatColor.RED + "Amount must be positive.");
             return false;
         }
 
-        // Withdraw the currency
-        if (!currency.withdraw(player, amount)) {
-            player.sendMessage(ChatColor.RED + "Failed to withdraw " + currency.formatAmount(amount) + "!");
+        if (drawingInProgress || entryQueue == null) {
+            player.sendMessage(ChatColor.RED + "The lottery drawing is taking place, please try again in a moment.");
             return false;
         }
 
-        // Add entry
-        Map<UUID, Long> currencyEntries = entries.get(currency.getId());
-        UUID playerId = player.getUniqueId();
-        currencyEntries.put(playerId, currencyEntries.getOrDefault(playerId, 0L) + amount);
-
-        // Notify player
-        player.sendMessage(ChatColor.GREEN + "You have entered the " + currency.getColoredName() +
-                ChatColor.GREEN + " lottery with " + currency.formatAmount(amount) + "!");
+        Optional<AsyncCurrency> asyncCurrency = plugin.getCurrencyManager().getAsyncCurrency(currency.getId());
+        if (!asyncCurrency.isPresent()) {
+            player.sendMessage(ChatColor.RED + "Unknown currency: " + currency.getName());
+            return false;
+        }
 
-        // Save data
-        saveData();
+        entryQueue.submit(asyncCurrency.get(), player, amount);
+        player.sendMessage(ChatColor.GRAY + "Entering the " + currency.getColoredName() + ChatColor.GRAY +
+                " lottery with " + currency.formatAmount(amount) + "...");
 
         return true;
     }
 
+    /**
+     * Update the pool version and rankings after the entry queue credited entries.
+     * @param currencyId The currency ID
+     * @param amounts The amounts credited by player
+     */
+    private void entriesCommitted(String currencyId, Map<UUID, Long> amounts) {
+        poolVersion++;
+
+        EntryLedger currencyEntries = entries.get(currencyId);
+        TopEntrants ranking = topEntrants(currencyId);
+        for (UUID playerId : amounts.keySet()) {
+            ranking.update(playerId, currencyEntries.get(playerId));
+        }
+    }
+
+    private TopEntrants topEntrants(String currencyId) {
+        return topEntrants.computeIfAbsent(currencyId, id -> new TopEntrants(topEntrantCount));
+    }
+
+    /**
+     * Get the players with the largest entries for a currency.
+     * The same list is returned until the ranking changes.
+     * @param currency The currency
+     * @return The entrants from largest to smallest entry
+     */
+    public List<TopEntrants.Entrant> getTopEntrants(Currency currency) {
+        return topEntrants(currency.getId()).snapshot();
+    }
+
     /**
      * Get a player's entries for a specific currency.
      * @param currency The currency
@@ -137,17 +240,28 @@ public class LotteryManager {
      * @return The amount of entries
      */
     public long getPlayerEntries(Currency currency, UUID playerId) {
-        Map<UUID, Long> currencyEntries = entries.get(currency.getId());
-        return currencyEntries != null ? currencyEntries.getOrDefault(playerId, 0L) : 0L;
+        EntryLedger currencyEntries = entries.get(currency.getId());
+        return currencyEntries != null ? currencyEntries.get(playerId) : 0L;
     }
 
     /**
-     * Get all entries for a specific currency.
+     * Get a copy of all entries for a specific currency.
      * @param currency The currency
      * @return Map of player UUIDs to entry amounts
      */
     public Map<UUID, Long> getAllEntries(Currency currency) {
-        return entries.getOrDefault(currency.getId(), new HashMap<>());
+        EntryLedger currencyEntries = entries.get(currency.getId());
+        return currencyEntries != null ? currencyEntries.toMap() : new HashMap<>();
+    }
+
+    /**
+     * Get an immutable copy of a currency's pool.
+     * @param currency The currency
+     * @return The snapshot
+     */
+    public LedgerSnapshot getPoolSnapshot(Currency currency) {
+        EntryLedger currencyEntries = entries.get(currency.getId());
+        return currencyEntries != null ? currencyEntries.snapshot() : LedgerSnapshot.empty();
     }
 
     /**
@@ -156,8 +270,8 @@ public class LotteryManager {
      * @return The total pool amount
      */
     public long getPoolTotal(Currency currency) {
-        Map<UUID, Long> currencyEntries = entries.get(currency.getId());
-        return currencyEntries.values().stream().mapToLong(Long::longValue).sum();
+        EntryLedger currencyEntries = entries.get(currency.getId());
+        return currencyEntries != null ? currencyEntries.total() : 0L;
     }
 
     /**
@@ -166,8 +280,17 @@ public class LotteryManager {
      * @return The number of participants
      */
     public int getParticipantCount(Currency currency) {
-        Map<UUID, Long> currencyEntries = entries.get(currency.getId());
-        return currencyEntries.size();
+        EntryLedger currencyEntries = entries.get(currency.getId());
+        return currencyEntries != null ? currencyEntries.size() : 0;
+    }
+
+    /**
+     * Get a number that changes whenever entries are added to or cleared from a pool,
+     * so callers can tell whether the pools changed without reading them.
+     * @return The pool version
+     */
+    public long getPoolVersion() {
+        return poolVersion;
     }
 
     /**
@@ -184,6 +307,7 @@ public class LotteryManager {
      */
     public void setNextDrawingTime(LocalDateTime nextDrawingTime) {
         this.nextDrawingTime = nextDrawingTime;
+        store.recordSchedule(nextDrawingTime);
 
         // Reschedule the drawing task
         if (drawingTask != null) {
@@ -220,71 +344,259 @@ public class LotteryManager {
 
     /**
      * Perform the lottery drawing.
+     * The pools are copied on the main thread, winners are drawn and their names
+     * resolved in the background, and payouts are applied back on the main thread
+     * under a per-tick time budget.
      */
     private void performDrawing() {
+        if (drawingInProgress) {
+            return;
+        }
+        drawingInProgress = true;
+
         plugin.getLogger().info("Performing lottery drawing...");
 
+        // Make sure every entry is on disk before the pools are paid out; once a drawing, so blocking is fine
+        saveData();
+
         // Announce the drawing
         Bukkit.broadcastMessage(ChatColor.GOLD + "" + ChatColor.BOLD + "[LOTTERY] " +
                 ChatColor.YELLOW + "The weekly lottery drawing is now taking place!");
 
-        // Process each currency
+        // Copy every pool; new entries are refused until the payouts are done
+        List<PoolDraw> draws = new ArrayList<>();
         for (Currency currency : plugin.getCurrencyManager().getAllCurrencies()) {
-            Map<UUID, Long> currencyEntries = entries.get(currency.getId());
+            EntryLedger currencyEntries = entries.get(currency.getId());
+            draws.add(new PoolDraw(currency.getId(),
+                    currencyEntries != null ? currencyEntries.snapshot() : LedgerSnapshot.empty(),
+                    getPrizeTiers(currency)));
+        }
+
+        // Log the seed and keep the pools, so the drawing can be replayed
+        long seed = new SecureRandom().nextLong();
+        exportState(captureState(), "drawing-" +
+                DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").format(LocalDateTime.now()) + ".yml");
+        plugin.getLogger().info("Drawing seed: " + seed);
+
+        int threads = plugin.getConfig().getInt("drawing.threads", 0);
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                // Select random winners, weighted by the amount each player entered
+                new ParallelDrawer(threads).drawAll(draws, seed);
+
+                for (PoolDraw draw : draws) {
+                    // Get winner names
+                    for (DrawResult result : draw.getResults()) {
+                        OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(result.getWinnerId());
+                        if (offlinePlayer.isOnline() || offlinePlayer.hasPlayedBefore()) {
+                            draw.setWinnerName(result.getWinnerId(), offlinePlayer.getName());
+                        }
+                    }
+                }
+            } catch (RuntimeException | Error e) {
+                plugin.getLogger().log(Level.SEVERE, "Lottery drawing with seed " + seed + " failed", e);
+                Bukkit.getScheduler().runTask(plugin, this::drawingFailed);
+                return;
+            }
+
+            Bukkit.getScheduler().runTask(plugin, () -> payOut(draws));
+        });
+    }
+
+    /**
+     * Reopen the lottery after a drawing failed before anything was paid, and try again later.
+     */
+    private void drawingFailed() {
+        drawingInProgress = false;
+
+        // Stopped while drawing; the next start draws again
+        if (!running) {
+            return;
+        }
+
+        Bukkit.broadcastMessage(ChatColor.GOLD + "[Lottery] " + ChatColor.RED +
+                "The lottery drawing failed and will be retried in " + DRAWING_RETRY_DELAY + " minutes.");
+        drawingTask = Bukkit.getScheduler().runTaskLater(plugin, this::performDrawing,
+                TICKS_PER_MINUTE * DRAWING_RETRY_DELAY);
+    }
+
+    /**
+     * Apply the drawn results a few at a time on the main thread.
+     * @param draws The drawn pools
+     */
+    private void payOut(List<PoolDraw> draws) {
+        // Stopped while drawing; nothing was paid, so the next start draws again
+        if (!running) {
+            drawingInProgress = false;
+            return;
+        }
 
-            if (currencyEntries.isEmpty()) {
-                Bukkit.broadcastMessage(ChatColor.GOLD + "[Lottery] " + ChatColor.WHITE +
-                        "No entries were made for the " + currency.getName() + " lottery this week.");
+        // Prizes for offline winners, stored together once every pool is paid out
+        Map<UUID, List<OfflineReward>> offlinePayouts = new LinkedHashMap<>();
+
+        List<Runnable> steps = new ArrayList<>();
+        for (PoolDraw draw : draws) {
+            Optional<AsyncCurrency> currency = plugin.getCurrencyManager().getAsyncCurrency(draw.getCurrencyId());
+            if (!currency.isPresent()) {
                 continue;
             }
 
-            // Calculate total pool
-            long poolTotal = getPoolTotal(currency);
+            if (draw.getResults().isEmpty()) {
+                steps.add(() -> Bukkit.broadcastMessage(ChatColor.GOLD + "[Lottery] " + ChatColor.WHITE +
+                        "No entries were made for the " + currency.get().getName() + " lottery this week."));
+                continue;
+            }
 
-            // Create weighted entries list
-            List<UUID> weightedEntries = new ArrayList<>();
-            for (Map.Entry<UUID, Long> entry : currencyEntries.entrySet()) {
-                for (int i = 0; i < entry.getValue(); i++) {
-                    weightedEntries.add(entry.getKey());
-                }
+            // Online winners are paid together once the currency's winners are announced
+            Map<UUID, DrawResult> onlineWinners = new LinkedHashMap<>();
+            Map<UUID, String> placeNames = new HashMap<>();
+
+            List<DrawResult> results = draw.getResults();
+            for (int place = 0; place < results.size(); place++) {
+                DrawResult result = results.get(place);
+                String placeName = results.size() > 1 ? ordinal(place + 1) + " place in " : "";
+                placeNames.put(result.getWinnerId(), placeName);
+                steps.add(() -> payOut(currency.get(), result, draw.getWinnerName(result.getWinnerId()),
+                        placeName, onlineWinners, offlinePayouts));
             }
+            steps.add(() -> depositPrizes(currency.get(), onlineWinners, placeNames));
 
-            // Select random winner
-            UUID winnerId = weightedEntries.get(new Random().nextInt(weightedEntries.size()));
-
-            // Get winner name
-            String winnerName = "Unknown";
-            Player winner = Bukkit.getPlayer(winnerId);
-            if (winner != null) {
-                winnerName = winner.getName();
-            } else {
-                OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(winnerId);
-                if (offlinePlayer.hasPlayedBefore()) {
-                    winnerName = offlinePlayer.getName();
+            // Clear entries for this currency
+            steps.add(() -> {
+                EntryLedger currencyEntries = entries.get(draw.getCurrencyId());
+                if (currencyEntries != null) {
+                    currencyEntries.clear();
                 }
+                store.recordClear(draw.getCurrencyId());
+                topEntrants(draw.getCurrencyId()).clear();
+                poolVersion++;
+            });
+        }
+
+        long budget = plugin.getConfig().getLong("drawing.payout_tick_budget", DEFAULT_PAYOUT_TICK_BUDGET);
+        payoutRunner = new TickBudgetRunner(steps, budget, () -> finishDrawing(offlinePayouts)).start(plugin);
+    }
+
+    /**
+     * Announce one winner's prize and set it aside to be paid.
+     * @param currency The currency
+     * @param result The winner and prize
+     * @param winnerName The winner's name
+     * @param placeName The place won, such as "2nd place in ", or empty for a single winner
+     * @param onlineWinners Collects prizes for online winners
+     * @param offlinePayouts Collects prizes for offline winners
+     */
+    private void payOut(Currency currency, DrawResult result, String winnerName, String placeName,
+                        Map<UUID, DrawResult> onlineWinners, Map<UUID, List<OfflineReward>> offlinePayouts) {
+        UUID winnerId = result.getWinnerId();
+        long prize = result.getPrize();
+        store.recordDraw(result);
+
+        // Announce winner
+        Bukkit.broadcastMessage(ChatColor.GOLD + "[Lottery] " + ChatColor.WHITE +
+                winnerName + " has won " + placeName + "the " + currency.getColoredName() +
+                ChatColor.WHITE + " lottery! Prize: " + currency.formatAmount(prize) + "!");
+
+        if (Bukkit.getPlayer(winnerId) != null) {
+            // Online player
+            onlineWinners.put(winnerId, result);
+        } else {
+            // Offline player
+            offlinePayouts.computeIfAbsent(winnerId, id -> new ArrayList<>())
+                    .add(new OfflineReward(currency.getId(), prize, result.getTimestamp()));
+            plugin.getLogger().info("Stored offline reward for player " + winnerId +
+                    ": " + currency.formatAmount(prize));
+        }
+    }
+
+    /**
+     * Pay a currency's online winners in one bulk deposit.
+     * Prizes that can't be deposited, such as for winners who left meanwhile,
+     * are kept for their next login.
+     * @param currency The currency
+     * @param winners The online winners' results
+     * @param placeNames The place each winner won, such as "2nd place in "
+     */
+    private void depositPrizes(AsyncCurrency currency, Map<UUID, DrawResult> winners, Map<UUID, String> placeNames) {
+        if (winners.isEmpty()) {
+            return;
+        }
+
+        Map<UUID, Long> prizes = new LinkedHashMap<>();
+        for (DrawResult result : winners.values()) {
+            prizes.put(result.getWinnerId(), result.getPrize());
+        }
+
+        callbacks.whenDone(currency.depositAll(prizes), (results, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to pay out " + currency.getName() + " lottery prizes", error);
             }
 
-            // Announce winner
-            Bukkit.broadcastMessage(ChatColor.GOLD + "[Lottery] " + ChatColor.WHITE +
-                    winnerName + " has won the " + currency.getColoredName() +
-                    ChatColor.WHITE + " lottery! Prize: " + currency.formatAmount(poolTotal) + "!");
-
-            // Award prize
-            if (winner != null) {
-                // Online player
-                currency.deposit(winner, poolTotal);
-                winner.sendMessage(ChatColor.GOLD + "[Lottery] " + ChatColor.GREEN +
-                        "Congratulations! You won the " + currency.getColoredName() +
-                        ChatColor.GREEN + " lottery! Your prize of " + currency.formatAmount(poolTotal) +
-                        " has been added to your account.");
-            } else {
-                // Offline player
-                storeOfflineReward(winnerId, currency, poolTotal);
+            Map<UUID, List<OfflineReward>> unpaid = new LinkedHashMap<>();
+            for (DrawResult result : winners.values()) {
+                UUID winnerId = result.getWinnerId();
+                Player winner = Bukkit.getPlayer(winnerId);
+
+                if (error == null && results.get(winnerId) == TransactionResult.SUCCESS) {
+                    if (winner != null) {
+                        winner.sendMessage(ChatColor.GOLD + "[Lottery] " + ChatColor.GREEN +
+                                "Congratulations! You won " + placeNames.get(winnerId) + "the " +
+                                currency.getColoredName() + ChatColor.GREEN + " lottery! Your prize of " +
+                                currency.formatAmount(result.getPrize()) + " has been added to your account.");
+                    }
+                    continue;
+                }
+
+                unpaid.computeIfAbsent(winnerId, id -> new ArrayList<>())
+                        .add(new OfflineReward(currency.getId(), result.getPrize(), result.getTimestamp()));
+                plugin.getLogger().info("Stored offline reward for player " + winnerId +
+                        ": " + currency.formatAmount(result.getPrize()));
             }
 
-            // Clear entries for this currency
-            currencyEntries.clear();
+            storeOfflineRewards(unpaid);
+        });
+    }
+
+    /**
+     * Get how a currency's pool is split between winners.
+     * Uses the currency's own prize_tiers if set, otherwise drawing.prize_tiers.
+     * @param currency The currency
+     * @return The relative share of each place
+     */
+    public int[] getPrizeTiers(Currency currency) {
+        List<Integer> configured = plugin.getConfig().getIntegerList("currencies." + currency.getId() + ".prize_tiers");
+        if (configured.isEmpty()) {
+            configured = plugin.getConfig().getIntegerList("drawing.prize_tiers");
+        }
+
+        int[] tiers = configured.stream().mapToInt(Integer::intValue).filter(share -> share > 0).toArray();
+        return tiers.length > 0 ? tiers : new int[]{100};
+    }
+
+    private static String ordinal(int place) {
+        if (place % 100 >= 11 && place % 100 <= 13) {
+            return place + "th";
+        }
+
+        switch (place % 10) {
+            case 1:
+                return place + "st";
+            case 2:
+                return place + "nd";
+            case 3:
+                return place + "rd";
+            default:
+                return place + "th";
         }
+    }
+
+    /**
+     * Store offline prizes and schedule the next drawing.
+     * @param offlinePayouts Prizes for offline winners
+     */
+    private void finishDrawing(Map<UUID, List<OfflineReward>> offlinePayouts) {
+        storeOfflineRewards(offlinePayouts);
 
         // Set next drawing time to next Sunday
         nextDrawingTime = LocalDateTime.now()
@@ -292,6 +604,15 @@ public class LotteryManager {
                 .withHour(0)
                 .withMinute(0)
                 .withSecond(0);
+        store.recordSchedule(nextDrawingTime);
+
+        payoutRunner = null;
+        drawingInProgress = false;
+
+        // The plugin may be finishing the drawing while shutting down
+        if (!plugin.isEnabled()) {
+            return;
+        }
 
         // Announce next drawing
         Bukkit.broadcastMessage(ChatColor.GOLD + "[Lottery] " + ChatColor.WHITE +
@@ -301,123 +622,187 @@ public class LotteryManager {
         // Reschedule the drawing task
         long ticksUntilDrawing = TimeUtil.getTicksUntil(nextDrawingTime);
         drawingTask = Bukkit.getScheduler().runTaskLater(plugin, this::performDrawing, ticksUntilDrawing);
+    }
 
-        // Save data
-        saveData();
+    /**
+     * Store rewards for offline players in a single write.
+     * @param rewards The rewards by player
+     */
+    private void storeOfflineRewards(Map<UUID, List<OfflineReward>> rewards) {
+        if (rewards.isEmpty()) {
+            return;
+        }
+
+        store.storeOfflineRewards(rewards);
+        pendingRewards.addAll(rewards.keySet());
     }
 
     /**
-     * Store a reward for an offline player.
+     * Check whether a player has offline rewards waiting.
      * @param playerId The player UUID
-     * @param currency The currency
-     * @param amount The amount
+     * @return True if rewards are waiting
      */
-    private void storeOfflineReward(UUID playerId, Currency currency, long amount) {
-        try {
-            File rewardFile = new File(offlineRewardsFolder, playerId.toString() + ".yml");
-            YamlConfiguration config = rewardFile.exists()
-                    ? YamlConfiguration.loadConfiguration(rewardFile)
-                    : new YamlConfiguration();
-
-            int rewardId = config.getKeys(false).size() + 1;
-            String path = String.valueOf(rewardId);
+    public boolean hasPendingRewards(UUID playerId) {
+        return pendingRewards.contains(playerId) || stagedRewards.containsKey(playerId);
+    }
 
-            config.set(path + ".currency", currency.getId());
-            config.set(path + ".amount", amount);
-            config.set(path + ".timestamp", System.currentTimeMillis());
+    /**
+     * Read a joining player's offline rewards ahead of the join.
+     * Called from the async pre-login thread.
+     * @param playerId The player UUID
+     */
+    public void prefetchOfflineRewards(UUID playerId) {
+        if (!pendingRewards.remove(playerId)) {
+            return;
+        }
 
-            config.save(rewardFile);
+        try {
+            List<OfflineReward> rewards = store.readOfflineRewards(playerId);
+            if (!rewards.isEmpty()) {
+                stagedRewards.merge(playerId, rewards, (staged, taken) -> {
+                    List<OfflineReward> merged = new ArrayList<>(staged);
+                    merged.addAll(taken);
+                    return merged;
+                });
+            }
+        } catch (Exception e) {
+            pendingRewards.add(playerId);
+            plugin.getLogger().log(Level.SEVERE, "Failed to load offline rewards for " + playerId, e);
+        }
+    }
 
-            plugin.getLogger().info("Stored offline reward for player " + playerId +
-                    ": " + currency.formatAmount(amount));
-        } catch (IOException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to store offline reward", e);
+    /**
+     * Release prefetched rewards when the login did not go through; they are still in storage.
+     * @param playerId The player UUID
+     */
+    public void releaseStagedRewards(UUID playerId) {
+        List<OfflineReward> rewards = stagedRewards.remove(playerId);
+        if (rewards == null) {
+            return;
         }
+
+        store.releaseOfflineRewards(playerId, rewards);
+        pendingRewards.add(playerId);
     }
 
     /**
      * Process offline rewards for a player.
+     * Prefetched rewards are paid out immediately; anything stored since is
+     * read in the background and paid out on the main thread.
      * @param player The player
      */
     public void processOfflineRewards(Player player) {
-        File rewardFile = new File(offlineRewardsFolder, player.getUniqueId().toString() + ".yml");
-        if (!rewardFile.exists()) {
+        UUID playerId = player.getUniqueId();
+
+        List<OfflineReward> staged = stagedRewards.remove(playerId);
+        if (staged != null) {
+            payOfflineRewards(player, staged);
+        }
+
+        if (!pendingRewards.remove(playerId)) {
             return;
         }
 
-        try {
-            YamlConfiguration config = YamlConfiguration.loadConfiguration(rewardFile);
-
-            for (String key : config.getKeys(false)) {
-                String currencyId = config.getString(key + ".currency");
-                long amount = config.getLong(key + ".amount");
-                long timestamp = config.getLong(key + ".timestamp");
-
-                Optional<Currency> currency = plugin.getCurrencyManager().getCurrency(currencyId);
-                if (currency.isPresent()) {
-                    // Award the prize
-                    currency.get().deposit(player, amount);
-
-                    // Format timestamp
-                    Date date = new Date(timestamp);
-                    String timeStr = new java.text.SimpleDateFormat("MMMM d").format(date);
-
-                    // Notify player
-                    player.sendMessage(ChatColor.GOLD + "[Lottery] " + ChatColor.WHITE +
-                            "While you were away, you won the " + currency.get().getColoredName() +
-                            ChatColor.WHITE + " lottery on " + timeStr + "! Your prize of " +
-                            currency.get().formatAmount(amount) + " has been added to your account.");
-                }
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            List<OfflineReward> rewards;
+            try {
+                rewards = store.readOfflineRewards(playerId);
+            } catch (Exception e) {
+                pendingRewards.add(playerId);
+                plugin.getLogger().log(Level.SEVERE, "Failed to process offline rewards for " +
+                        player.getName(), e);
+                return;
             }
 
-            // Delete the reward file
-            rewardFile.delete();
+            if (!rewards.isEmpty()) {
+                Bukkit.getScheduler().runTask(plugin, () -> payOfflineRewards(player, rewards));
+            }
+        });
+    }
 
-        } catch (Exception e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to process offline rewards for " +
-                    player.getName(), e);
+    /**
+     * Pay out offline rewards read from storage.
+     * The rewards are claimed in storage only once every one of them has been
+     * paid or stored again, so none is ever held only in memory.
+     * @param player The player
+     * @param rewards The rewards
+     */
+    private void payOfflineRewards(Player player, List<OfflineReward> rewards) {
+        UUID playerId = player.getUniqueId();
+        List<OfflineReward> unpaid = new ArrayList<>();
+        int[] remaining = {rewards.size()};
+
+        Runnable settled = () -> {
+            if (--remaining[0] > 0) {
+                return;
+            }
+
+            // Store what could not be paid before claiming the originals
+            if (!unpaid.isEmpty()) {
+                storeOfflineRewards(Collections.singletonMap(playerId, unpaid));
+            }
+            store.claimOfflineRewards(playerId, rewards);
+        };
+
+        for (OfflineReward reward : rewards) {
+            Optional<AsyncCurrency> currency = plugin.getCurrencyManager().getAsyncCurrency(reward.getCurrencyId());
+
+            // Keep the prize for the next login if its currency is gone or the player left meanwhile
+            if (!currency.isPresent() || !player.isOnline()) {
+                unpaid.add(reward);
+                settled.run();
+                continue;
+            }
+
+            callbacks.whenDone(currency.get().depositAsync(player, reward.getAmount()), (result, error) -> {
+                if (error != null || result != TransactionResult.SUCCESS) {
+                    unpaid.add(reward);
+                    settled.run();
+                    return;
+                }
+
+                // Format timestamp
+                Date date = new Date(reward.getTimestamp());
+                String timeStr = new java.text.SimpleDateFormat("MMMM d").format(date);
+
+                // Notify player
+                player.sendMessage(ChatColor.GOLD + "[Lottery] " + ChatColor.WHITE +
+                        "While you were away, you won the " + currency.get().getColoredName() +
+                        ChatColor.WHITE + " lottery on " + timeStr + "! Your prize of " +
+                        currency.get().formatAmount(reward.getAmount()) + " has been added to your account.");
+                settled.run();
+            });
         }
     }
 
     /**
-     * Load lottery data from file.
+     * Load lottery data from the configured store.
      */
     public void loadData() {
-        if (!dataFile.exists()) {
-            return;
-        }
-
         try {
-            YamlConfiguration config = YamlConfiguration.loadConfiguration(dataFile);
+            LotteryState state = store.load();
 
             // Load next drawing time
-            String timeStr = config.getString("next_drawing");
-            if (timeStr != null) {
-                nextDrawingTime = LocalDateTime.parse(timeStr);
+            if (state.getNextDrawingTime() != null) {
+                nextDrawingTime = state.getNextDrawingTime();
             }
 
             // Load entries
-            ConfigurationSection entriesSection = config.getConfigurationSection("entries");
-            if (entriesSection != null) {
-                for (String currencyId : entriesSection.getKeys(false)) {
-                    Map<UUID, Long> currencyEntries = new HashMap<>();
-                    entries.put(currencyId, currencyEntries);
-
-                    ConfigurationSection currencySection = entriesSection.getConfigurationSection(currencyId);
-                    if (currencySection != null) {
-                        for (String playerIdStr : currencySection.getKeys(false)) {
-                            try {
-                                UUID playerId = UUID.fromString(playerIdStr);
-                                long amount = currencySection.getLong(playerIdStr);
-                                currencyEntries.put(playerId, amount);
-                            } catch (IllegalArgumentException e) {
-                                plugin.getLogger().warning("Invalid UUID in lottery data: " + playerIdStr);
-                            }
-                        }
-                    }
-                }
+            for (Map.Entry<String, LedgerSnapshot> entry : state.getEntries().entrySet()) {
+                LedgerSnapshot snapshot = entry.getValue();
+                EntryLedger currencyEntries = new EntryLedger(snapshot.size());
+                snapshot.forEach(currencyEntries::add);
+                entries.put(entry.getKey(), currencyEntries);
+
+                // Rank the loaded entrants
+                TopEntrants ranking = topEntrants(entry.getKey());
+                ranking.clear();
+                snapshot.forEach((msb, lsb, amount) -> ranking.update(new UUID(msb, lsb), amount));
             }
 
+            // Index players with rewards waiting
+            pendingRewards.addAll(store.getOfflineRewardOwners());
+
             plugin.getLogger().info("Loaded lottery data successfully");
         } catch (Exception e) {
             plugin.getLogger().log(Level.SEVERE, "Failed to load lottery data", e);
@@ -425,29 +810,63 @@ public class LotteryManager {
     }
 
     /**
-     * Save lottery data to file.
+     * Save lottery data, waiting for the write to complete.
      */
     public void saveData() {
-        try {
-            YamlConfiguration config = new YamlConfiguration();
+        store.flush();
+    }
 
-            // Save next drawing time
-            config.set("next_drawing", nextDrawingTime.toString());
+    /**
+     * Get the store lottery data is kept in.
+     * @return The store
+     */
+    public LotteryStore getStore() {
+        return store;
+    }
 
-            // Save entries
-            for (Map.Entry<String, Map<UUID, Long>> entry : entries.entrySet()) {
-                String currencyId = entry.getKey();
-                Map<UUID, Long> currencyEntries = entry.getValue();
+    /**
+     * Export the current lottery data as YAML in the background.
+     * @return The file the export is written to
+     */
+    public File exportData() {
+        return exportState(captureState(), "lottery_data-" +
+                DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").format(LocalDateTime.now()) + ".yml");
+    }
 
-                for (Map.Entry<UUID, Long> playerEntry : currencyEntries.entrySet()) {
-                    config.set("entries." + currencyId + "." + playerEntry.getKey().toString(),
-                            playerEntry.getValue());
+    /**
+     * Write a copy of the state as YAML to the exports folder in the background.
+     * @param state The state
+     * @param fileName The export file name
+     * @return The file the export is written to
+     */
+    private File exportState(LotteryState state, String fileName) {
+        File exportFolder = new File(plugin.getDataFolder(), "exports");
+        File exportFile = new File(exportFolder, fileName);
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                if (!exportFolder.exists()) {
+                    exportFolder.mkdirs();
                 }
+                AtomicFiles.write(exportFile, new YamlSnapshotFormat().encode(state));
+                plugin.getLogger().info("Exported lottery data to " + exportFile.getName());
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to export lottery data", e);
             }
+        });
+
+        return exportFile;
+    }
 
-            config.save(dataFile);
-        } catch (IOException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to save lottery data", e);
+    /**
+     * Copy the in-memory state.
+     * @return The copy
+     */
+    private LotteryState captureState() {
+        Map<String, LedgerSnapshot> snapshots = new LinkedHashMap<>();
+        for (Map.Entry<String, EntryLedger> entry : entries.entrySet()) {
+            snapshots.put(entry.getKey(), entry.getValue().snapshot());
         }
+        return new LotteryState(nextDrawingTime, snapshots);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,66 @@
+package com.blissy.lottery.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Utility class for crash-safe file replacement.
+ */
+public final class AtomicFiles {
+
+    private AtomicFiles() {
+    }
+
+    /**
+     * Replace a file's contents atomically.
+     * The data is written and synced to a temporary sibling file, which is then
+     * renamed over the target, so readers see either the old or the new file.
+     * @param target The file to replace
+     * @param data The new contents
+     * @throws IOException If the file could not be written
+     */
+    public static void write(File target, byte[] data) throws IOException {
+        Path tempPath = tempFileFor(target);
+
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+
+        replace(tempPath, target);
+    }
+
+    /**
+     * Get the temporary sibling used while replacing a file.
+     * @param target The file to replace
+     * @return The temporary file path
+     */
+    public static Path tempFileFor(File target) {
+        return target.toPath().resolveSibling(target.getName() + ".tmp");
+    }
+
+    /**
+     * Rename a fully written temporary file over its target.
+     * @param tempPath The temporary file
+     * @param target The file to replace
+     * @throws IOException If the file could not be moved
+     */
+    public static void replace(Path tempPath, File target) throws IOException {
+        try {
+            Files.move(tempPath, target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempPath, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.blissy.lottery.storage;
+
+import com.blissy.lottery.ledger.LedgerSnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary snapshot format, read into a single heap buffer.
+ * Avoids YAML parsing and UUID string conversion, so load and save time stays
+ * flat with hundreds of thousands of entries.
+ *
+ * <p>Layout (big-endian): magic, version, next drawing time (UTC epoch seconds
+ * of the local date-time, or {@link Long#MIN_VALUE}), journal segment and
+ * currency count; then a currency table of (UTF-8 ID, entry count, total);
+ * then fixed-width (uuidHi, uuidLo, amount) records for each currency in table
+ * order; and finally a CRC32 of everything before it.</p>
+ */
+public class BinarySnapshotFormat implements SnapshotFormat {
+    private static final int MAGIC = 0x50534C53; // "PSLS"
+    private static final int VERSION = 1;
+    private static final int RECORD_SIZE = 24;
+    private static final long NO_DRAWING_TIME = Long.MIN_VALUE;
+
+    @Override
+    public String getFileName() {
+        return "lottery_data.dat";
+    }
+
+    @Override
+    public byte[] encode(LotteryState state) {
+        Map<String, LedgerSnapshot> entries = state.getEntries();
+        Map<String, byte[]> currencyIds = new LinkedHashMap<>();
+        long size = 4 + 4 + 8 + 8 + 4;
+
+        for (Map.Entry<String, LedgerSnapshot> entry : entries.entrySet()) {
+            byte[] id = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            currencyIds.put(entry.getKey(), id);
+            size += 2 + id.length + 4 + 8 + (long) entry.getValue().size() * RECORD_SIZE;
+        }
+        size += 4;
+
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Lottery snapshot is too large: " + size + " bytes");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+
+        // Header
+        buffer.putInt(MAGIC).putInt(VERSION);
+        buffer.putLong(state.getNextDrawingTime() != null
+                ? state.getNextDrawingTime().toEpochSecond(ZoneOffset.UTC)
+                : NO_DRAWING_TIME);
+        buffer.putLong(state.getJournalSegment());
+        buffer.putInt(entries.size());
+
+        // Currency table
+        for (Map.Entry<String, LedgerSnapshot> entry : entries.entrySet()) {
+            byte[] id = currencyIds.get(entry.getKey());
+            buffer.putShort((short) id.length).put(id);
+            buffer.putInt(entry.getValue().size()).putLong(entry.getValue().total());
+        }
+
+        // Entry records
+        for (LedgerSnapshot snapshot : entries.values()) {
+            for (int i = 0; i < snapshot.size(); i++) {
+                buffer.putLong(snapshot.mostSigBits(i))
+                        .putLong(snapshot.leastSigBits(i))
+                        .putLong(snapshot.amount(i));
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+
+        return buffer.array();
+    }
+
+    @Override
+    public LotteryState decode(File file, Logger logger) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < 32) {
+                throw new IOException("Lottery snapshot is truncated: " + file);
+            }
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("Lottery snapshot is too large: " + file);
+            }
+
+            // Read rather than map, so no mapping keeps the file locked against the next save
+            ByteBuffer buffer = ByteBuffer.allocate((int) fileSize);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Lottery snapshot is truncated: " + file);
+                }
+            }
+            buffer.flip();
+
+            // Verify the trailer before trusting any of the contents
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), 0, (int) fileSize - 4);
+            if ((int) crc.getValue() != buffer.getInt((int) fileSize - 4)) {
+                throw new IOException("Lottery snapshot checksum mismatch: " + file);
+            }
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a lottery snapshot: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported lottery snapshot version " + version + ": " + file);
+            }
+
+            long drawingTime = buffer.getLong();
+            LocalDateTime nextDrawingTime = drawingTime != NO_DRAWING_TIME
+                    ? LocalDateTime.ofEpochSecond(drawingTime, 0, ZoneOffset.UTC)
+                    : null;
+            long journalSegment = buffer.getLong();
+            int currencyCount = buffer.getInt();
+
+            // Currency table
+            String[] currencyIds = new String[currencyCount];
+            int[] counts = new int[currencyCount];
+            for (int i = 0; i < currencyCount; i++) {
+                byte[] id = new byte[buffer.getShort()];
+                buffer.get(id);
+                currencyIds[i] = new String(id, StandardCharsets.UTF_8);
+                counts[i] = buffer.getInt();
+                buffer.getLong(); // Total, recomputed from the records
+            }
+
+            // Entry records
+            Map<String, LedgerSnapshot> entries = new LinkedHashMap<>();
+            for (int i = 0; i < currencyCount; i++) {
+                long[] mostSigBits = new long[counts[i]];
+                long[] leastSigBits = new long[counts[i]];
+                long[] amounts = new long[counts[i]];
+
+                for (int j = 0; j < counts[i]; j++) {
+                    mostSigBits[j] = buffer.getLong();
+                    leastSigBits[j] = buffer.getLong();
+                    amounts[j] = buffer.getLong();
+                }
+
+                entries.put(currencyIds[i], LedgerSnapshot.wrap(mostSigBits, leastSigBits, amounts));
+            }
+
+            return new LotteryState(nextDrawingTime, entries, journalSegment);
+        }
+    }
+}
@@ -0,0 +1,545 @@
+package com.blissy.lottery.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal of lottery state changes.
+ * Every change is a fixed-size binary record appended to the current segment
+ * file, so recording an entry costs one small write no matter how full the pools
+ * are. State is rebuilt by replaying every segment newer than the last snapshot.
+ * Segments are rotated when a snapshot is taken and deleted once it is on disk.
+ * A rotation only reserves the next segment number, so it does no file I/O; the
+ * next {@link #sync()} on the I/O thread creates the segment and syncs and closes
+ * the previous one. Records appended in between are held in memory.
+ *
+ * <p>Record layout (40 bytes, big-endian): type (1), currency index (1),
+ * reserved (2), CRC32 of the remaining bytes (4), followed by four longs whose
+ * meaning depends on the type. Currency IDs are mapped to indexes by
+ * {@link #CURRENCY} records at the start of the segment that first uses them.</p>
+ */
+public class EntryJournal {
+    public static final byte CURRENCY = 1;
+    public static final byte ENTRY = 2;
+    public static final byte DRAW = 3;
+    public static final byte CLEAR = 4;
+    public static final byte SCHEDULE = 5;
+
+    private static final int MAGIC = 0x50534C4A; // "PSLJ"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_SIZE = 40;
+    private static final int MAX_CURRENCY_ID_BYTES = 32;
+    private static final int MAX_CURRENCIES = 256;
+
+    private final File folder;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32 crc = new CRC32();
+    private final Map<String, Integer> currencyIndexes = new HashMap<>();
+
+    private FileChannel channel; // null while the current segment is reserved but not created
+    private long segment;
+    private long size;
+    private boolean open;
+
+    // Segments reserved by a rotation and not created yet, with the records appended to them meanwhile
+    private final TreeMap<Long, ByteArrayOutputStream> reserved = new TreeMap<>();
+    // Rotated-out segments still to be synced and closed
+    private final List<FileChannel> retired = new ArrayList<>();
+
+    /**
+     * Callback for replaying journal records.
+     */
+    public interface Handler {
+        /**
+         * Replay an accepted entry.
+         * @param currencyId The currency ID
+         * @param playerId The player UUID
+         * @param amount The amount entered
+         */
+        void entry(String currencyId, UUID playerId, long amount);
+
+        /**
+         * Replay a draw result.
+         * @param currencyId The currency ID
+         * @param winnerId The winner's UUID
+         * @param prize The prize paid
+         */
+        void draw(String currencyId, UUID winnerId, long prize);
+
+        /**
+         * Replay the clearing of a pool.
+         * @param currencyId The currency ID
+         */
+        void clear(String currencyId);
+
+        /**
+         * Replay a change of the next drawing time.
+         * @param epochSecond The drawing time as UTC epoch seconds of the local date-time
+         */
+        void schedule(long epochSecond);
+    }
+
+    public EntryJournal(File folder) {
+        this.folder = folder;
+    }
+
+    /**
+     * Open a fresh segment after the newest existing one.
+     * @throws IOException If the segment could not be created
+     */
+    public synchronized void open() throws IOException {
+        if (!folder.exists() && !folder.mkdirs()) {
+            throw new IOException("Could not create journal folder " + folder);
+        }
+
+        segment = nextSegment(folder);
+        channel = createSegment(segment, StandardOpenOption.CREATE_NEW);
+        size = HEADER_SIZE;
+        currencyIndexes.clear();
+        open = true;
+    }
+
+    /**
+     * Check if a segment is open for appending.
+     * @return True if open, false otherwise
+     */
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Get the segment new records are appended to.
+     * @return The segment number
+     */
+    public synchronized long getSegment() {
+        return segment;
+    }
+
+    /**
+     * Get the number of bytes in the current segment.
+     * @return The segment size
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Append an accepted entry.
+     * @param currencyId The currency ID
+     * @param playerId The player UUID
+     * @param amount The amount entered
+     * @throws IOException If the record could not be written
+     */
+    public synchronized void appendEntry(String currencyId, UUID playerId, long amount) throws IOException {
+        append(ENTRY, currencyIndex(currencyId), playerId.getMostSignificantBits(),
+                playerId.getLeastSignificantBits(), amount, System.currentTimeMillis());
+    }
+
+    /**
+     * Append a batch of accepted entries with a single write.
+     * @param currencyId The currency ID
+     * @param amounts The amount entered by each player
+     * @throws IOException If the records could not be written
+     */
+    public synchronized void appendEntries(String currencyId, Map<UUID, Long> amounts) throws IOException {
+        if (amounts.isEmpty()) {
+            return;
+        }
+
+        int currency = currencyIndex(currencyId);
+        long timestamp = System.currentTimeMillis();
+        ByteBuffer batch = ByteBuffer.allocate(RECORD_SIZE * amounts.size());
+        for (Map.Entry<UUID, Long> entry : amounts.entrySet()) {
+            put(batch, ENTRY, currency, entry.getKey().getMostSignificantBits(),
+                    entry.getKey().getLeastSignificantBits(), entry.getValue(), timestamp);
+        }
+        write(batch);
+    }
+
+    /**
+     * Append a draw result.
+     * @param currencyId The currency ID
+     * @param winnerId The winner's UUID
+     * @param prize The prize paid
+     * @throws IOException If the record could not be written
+     */
+    public synchronized void appendDraw(String currencyId, UUID winnerId, long prize) throws IOException {
+        append(DRAW, currencyIndex(currencyId), winnerId.getMostSignificantBits(),
+                winnerId.getLeastSignificantBits(), prize, System.currentTimeMillis());
+    }
+
+    /**
+     * Append the clearing of a pool.
+     * @param currencyId The currency ID
+     * @throws IOException If the record could not be written
+     */
+    public synchronized void appendClear(String currencyId) throws IOException {
+        append(CLEAR, currencyIndex(currencyId), 0L, 0L, 0L, System.currentTimeMillis());
+    }
+
+    /**
+     * Append a change of the next drawing time.
+     * @param epochSecond The drawing time as UTC epoch seconds of the local date-time
+     * @throws IOException If the record could not be written
+     */
+    public synchronized void appendSchedule(long epochSecond) throws IOException {
+        append(SCHEDULE, 0, 0L, 0L, epochSecond, System.currentTimeMillis());
+    }
+
+    /**
+     * Start appending to a new segment, without touching the disk.
+     * The segment is created by the next {@link #sync()}; until then its records are kept in memory.
+     * Everything recorded so far lives in segments before the returned number.
+     * @return The new segment number
+     * @throws IOException If the journal is not open
+     */
+    public synchronized long rotate() throws IOException {
+        if (!open) {
+            throw new IOException("Journal is not open");
+        }
+
+        if (channel != null) {
+            retired.add(channel);
+            channel = null;
+        }
+        segment++;
+        reserved.put(segment, new ByteArrayOutputStream());
+        currencyIndexes.clear();
+        size = HEADER_SIZE;
+        return segment;
+    }
+
+    /**
+     * Create segments reserved by rotations, sync and close rotated-out ones, and
+     * force appended records to the storage device.
+     * Meant for the I/O thread; appends are only blocked while held records are
+     * copied into a newly created segment.
+     * @throws IOException If a segment could not be created or synced
+     */
+    public void sync() throws IOException {
+        createReservedSegments();
+
+        FileChannel current;
+        List<FileChannel> rotatedOut;
+        synchronized (this) {
+            current = channel;
+            rotatedOut = new ArrayList<>(retired);
+            retired.clear();
+        }
+
+        closeAll(rotatedOut);
+
+        if (current == null) {
+            return;
+        }
+
+        try {
+            current.force(false);
+        } catch (ClosedChannelException e) {
+            // Closed meanwhile; closing a segment syncs it
+        }
+    }
+
+    /**
+     * Write out any reserved segments and close every segment.
+     * @throws IOException If a segment could not be written or synced
+     */
+    public void close() throws IOException {
+        try {
+            createReservedSegments();
+        } finally {
+            List<FileChannel> segments;
+            synchronized (this) {
+                open = false;
+                if (channel != null) {
+                    retired.add(channel);
+                    channel = null;
+                }
+                segments = new ArrayList<>(retired);
+                retired.clear();
+            }
+            closeAll(segments);
+        }
+    }
+
+    /**
+     * Get the number the next opened segment will have.
+     * @param folder The journal folder
+     * @return The segment number
+     */
+    public static long nextSegment(File folder) {
+        long[] segments = listSegments(folder);
+        return segments.length > 0 ? segments[segments.length - 1] + 1 : 1;
+    }
+
+    /**
+     * Delete segments that are covered by a snapshot.
+     * @param folder The journal folder
+     * @param firstKept The first segment that must be kept
+     */
+    public static void deleteSegmentsBefore(File folder, long firstKept) {
+        for (long number : listSegments(folder)) {
+            if (number < firstKept) {
+                segmentFile(folder, number).delete();
+            }
+        }
+    }
+
+    /**
+     * Replay every record in segments from a starting number.
+     * Replay of a segment stops at the first torn or corrupt record.
+     * @param folder The journal folder
+     * @param firstSegment The first segment to replay
+     * @param handler The replay handler
+     * @return The number of records replayed
+     * @throws IOException If a segment could not be read
+     */
+    public static long replay(File folder, long firstSegment, Handler handler) throws IOException {
+        long replayed = 0;
+
+        for (long number : listSegments(folder)) {
+            if (number >= firstSegment) {
+                replayed += replaySegment(segmentFile(folder, number), handler);
+            }
+        }
+
+        return replayed;
+    }
+
+    /**
+     * Check if there are any segments to replay.
+     * @param folder The journal folder
+     * @return True if at least one segment exists
+     */
+    public static boolean hasSegments(File folder) {
+        return listSegments(folder).length > 0;
+    }
+
+    private static long replaySegment(File file, Handler handler) throws IOException {
+        Map<Integer, String> currencies = new HashMap<>();
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        CRC32 checksum = new CRC32();
+        long replayed = 0;
+
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (!readFully(in, header) || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                return 0;
+            }
+
+            while (readFully(in, buffer)) {
+                checksum.reset();
+                checksum.update(buffer.array(), 8, RECORD_SIZE - 8);
+                if ((int) checksum.getValue() != buffer.getInt(4)) {
+                    break;
+                }
+
+                byte type = buffer.get(0);
+                int currency = buffer.get(1) & 0xFF;
+                long first = buffer.getLong(8);
+                long second = buffer.getLong(16);
+                long third = buffer.getLong(24);
+
+                switch (type) {
+                    case CURRENCY:
+                        currencies.put(currency, decodeCurrencyId(buffer));
+                        break;
+                    case ENTRY:
+                        handler.entry(currencies.get(currency), new UUID(first, second), third);
+                        break;
+                    case DRAW:
+                        handler.draw(currencies.get(currency), new UUID(first, second), third);
+                        break;
+                    case CLEAR:
+                        handler.clear(currencies.get(currency));
+                        break;
+                    case SCHEDULE:
+                        handler.schedule(third);
+                        break;
+                    default:
+                        throw new IOException("Unknown journal record type " + type + " in " + file);
+                }
+                replayed++;
+            }
+        }
+
+        return replayed;
+    }
+
+    private int currencyIndex(String currencyId) throws IOException {
+        Integer index = currencyIndexes.get(currencyId);
+        if (index != null) {
+            return index;
+        }
+
+        byte[] idBytes = currencyId.getBytes(StandardCharsets.UTF_8);
+        if (idBytes.length > MAX_CURRENCY_ID_BYTES) {
+            throw new IOException("Currency ID is too long for the journal: " + currencyId);
+        }
+        if (currencyIndexes.size() >= MAX_CURRENCIES) {
+            throw new IOException("Too many currencies in one journal segment");
+        }
+
+        index = currencyIndexes.size();
+        byte[] padded = Arrays.copyOf(idBytes, MAX_CURRENCY_ID_BYTES);
+        ByteBuffer id = ByteBuffer.wrap(padded);
+        append(CURRENCY, index, id.getLong(0), id.getLong(8), id.getLong(16), id.getLong(24));
+        currencyIndexes.put(currencyId, index);
+        return index;
+    }
+
+    private static String decodeCurrencyId(ByteBuffer buffer) {
+        byte[] padded = Arrays.copyOfRange(buffer.array(), 8, 8 + MAX_CURRENCY_ID_BYTES);
+        int length = 0;
+        while (length < padded.length && padded[length] != 0) {
+            length++;
+        }
+        return new String(padded, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void append(byte type, int currency, long first, long second, long third, long fourth)
+            throws IOException {
+        record.clear();
+        put(record, type, currency, first, second, third, fourth);
+        write(record);
+    }
+
+    private void put(ByteBuffer buffer, byte type, int currency, long first, long second, long third, long fourth) {
+        int start = buffer.position();
+        buffer.put(type).put((byte) currency).putShort((short) 0).putInt(0)
+                .putLong(first).putLong(second).putLong(third).putLong(fourth);
+
+        crc.reset();
+        crc.update(buffer.array(), start + 8, RECORD_SIZE - 8);
+        buffer.putInt(start + 4, (int) crc.getValue());
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        if (!open) {
+            throw new IOException("Journal is not open");
+        }
+
+        buffer.flip();
+        int length = buffer.remaining();
+        if (channel != null) {
+            writeFully(channel, buffer);
+        } else {
+            // The segment is only reserved so far
+            reserved.get(segment).write(buffer.array(), buffer.position(), length);
+        }
+        size += length;
+    }
+
+    private void createReservedSegments() throws IOException {
+        while (true) {
+            long number;
+            synchronized (this) {
+                if (reserved.isEmpty()) {
+                    return;
+                }
+                number = reserved.firstKey();
+            }
+
+            // Reserved numbers are newer than any segment on disk, so a leftover from a failed attempt can go
+            FileChannel created = createSegment(number, StandardOpenOption.TRUNCATE_EXISTING);
+            synchronized (this) {
+                try {
+                    writeFully(created, ByteBuffer.wrap(reserved.get(number).toByteArray()));
+                } catch (IOException e) {
+                    created.close();
+                    throw e;
+                }
+                reserved.remove(number);
+
+                if (open && number == segment) {
+                    channel = created;
+                } else {
+                    retired.add(created);
+                }
+            }
+        }
+    }
+
+    private FileChannel createSegment(long number, StandardOpenOption mode) throws IOException {
+        FileChannel created = FileChannel.open(segmentFile(folder, number).toPath(), StandardOpenOption.CREATE,
+                mode, StandardOpenOption.WRITE);
+        try {
+            writeFully(created, ByteBuffer.allocate(HEADER_SIZE).putInt(0, MAGIC).putInt(4, VERSION));
+        } catch (IOException e) {
+            created.close();
+            throw e;
+        }
+        return created;
+    }
+
+    private static void closeAll(List<FileChannel> channels) throws IOException {
+        IOException failure = null;
+        for (FileChannel segmentChannel : channels) {
+            try {
+                segmentChannel.force(false);
+            } catch (IOException e) {
+                failure = failure != null ? failure : e;
+            } finally {
+                segmentChannel.close();
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private static boolean readFully(FileChannel in, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static File segmentFile(File folder, long number) {
+        return new File(folder, String.format("segment-%08d.dat", number));
+    }
+
+    private static long[] listSegments(File folder) {
+        File[] files = folder.listFiles((dir, name) -> name.startsWith("segment-") && name.endsWith(".dat"));
+        if (files == null) {
+            return new long[0];
+        }
+
+        List<Long> numbers = new ArrayList<>();
+        for (File file : files) {
+            String name = file.getName();
+            try {
+                numbers.add(Long.parseLong(name.substring("segment-".length(), name.length() - ".dat".length())));
+            } catch (NumberFormatException ignored) {
+                // Not a journal segment
+            }
+        }
+
+        return numbers.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+}
@@ -0,0 +1,398 @@
+package com.blissy.lottery.storage;
+
+import com.blissy.lottery.Lottery;
+import com.blissy.lottery.draw.DrawResult;
+import com.blissy.lottery.ledger.EntryLedger;
+import com.blissy.lottery.ledger.LedgerSnapshot;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Default store keeping the lottery state in the plugin folder.
+ * Entries and draw state live in a YAML (or binary) snapshot written behind
+ * changes, optionally backed by an append-only journal. Offline rewards and
+ * draw history are kept in append-only logs.
+ */
+public class FileLotteryStore implements LotteryStore {
+    private static final long DEFAULT_FLUSH_INTERVAL = 100; // ticks
+    private static final long DEFAULT_JOURNAL_COMPACT_THRESHOLD = 1024 * 1024; // bytes
+
+    private final Lottery plugin;
+    private final Supplier<LotteryState> stateSupplier;
+    private final SnapshotFormat snapshotFormat;
+    private final File dataFile;
+    private final File offlineRewardsFolder;
+    private final OfflineRewardLog offlineRewards;
+    private final File journalFolder;
+    private final File historyFile;
+    private final WriteBehindFlusher flusher;
+    private final EntryJournal journal;
+    private final long flushInterval;
+    private final long journalCompactThreshold;
+    private BukkitTask journalSyncTask;
+
+    /**
+     * Create a file store.
+     * @param plugin The plugin
+     * @param stateSupplier Supplies a copy of the in-memory state when a snapshot is due
+     */
+    public FileLotteryStore(Lottery plugin, Supplier<LotteryState> stateSupplier) {
+        this.plugin = plugin;
+        this.stateSupplier = stateSupplier;
+        this.snapshotFormat = "binary".equalsIgnoreCase(plugin.getConfig().getString("storage.format", "yaml"))
+                ? new BinarySnapshotFormat()
+                : new YamlSnapshotFormat();
+        this.dataFile = new File(plugin.getDataFolder(), snapshotFormat.getFileName());
+        this.offlineRewardsFolder = new File(plugin.getDataFolder(), "offline");
+        this.offlineRewards = new OfflineRewardLog(new File(plugin.getDataFolder(), "offline_rewards.log"));
+        this.journalFolder = new File(plugin.getDataFolder(), "journal");
+        this.historyFile = new File(plugin.getDataFolder(), "draw_history.log");
+        this.flusher = new WriteBehindFlusher(plugin, dataFile, snapshotFormat, this::createSnapshot,
+                this::onSnapshotWritten);
+
+        // Journal mode appends each change instead of rewriting the whole data file
+        boolean journaling = "journal".equalsIgnoreCase(plugin.getConfig().getString("storage.mode", "snapshot"));
+        this.journal = journaling ? new EntryJournal(journalFolder) : null;
+        this.flushInterval = plugin.getConfig().getLong("storage.flush_interval", DEFAULT_FLUSH_INTERVAL);
+        this.journalCompactThreshold = plugin.getConfig().getLong("storage.journal_compact_threshold",
+                DEFAULT_JOURNAL_COMPACT_THRESHOLD);
+    }
+
+    @Override
+    public LotteryState load() throws IOException {
+        migrateDataFile();
+
+        // Offline rewards live in a single log; move any per-player files into it
+        offlineRewards.load(plugin.getLogger());
+        offlineRewards.importLegacy(offlineRewardsFolder, plugin.getLogger());
+
+        LotteryState state = dataFile.exists()
+                ? snapshotFormat.decode(dataFile, plugin.getLogger())
+                : new LotteryState(null, Collections.emptyMap());
+
+        if (!EntryJournal.hasSegments(journalFolder)) {
+            return state;
+        }
+
+        // Replay changes recorded after the snapshot
+        JournalReplayer replayer = new JournalReplayer(state);
+        long replayed = EntryJournal.replay(journalFolder, state.getJournalSegment(), replayer);
+        plugin.getLogger().info("Replayed " + replayed + " lottery journal records");
+        state = replayer.toState(journal != null ? state.getJournalSegment() : 0);
+
+        // Fold the journal into the data file when journaling was switched off
+        if (journal == null) {
+            AtomicFiles.write(dataFile, snapshotFormat.encode(state));
+            EntryJournal.deleteSegmentsBefore(journalFolder, Long.MAX_VALUE);
+        }
+
+        return state;
+    }
+
+    @Override
+    public void importState(LotteryState state) throws IOException {
+        long segment = journal != null ? EntryJournal.nextSegment(journalFolder) : 0;
+        AtomicFiles.write(dataFile, snapshotFormat.encode(state.withJournalSegment(segment)));
+        EntryJournal.deleteSegmentsBefore(journalFolder, journal != null ? segment : Long.MAX_VALUE);
+    }
+
+    @Override
+    public void start() {
+        flusher.start(flushInterval);
+
+        if (journal != null) {
+            try {
+                journal.open();
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to open lottery journal", e);
+            }
+
+            // Appends reach the OS immediately; sync them to the device in the background
+            journalSyncTask = Bukkit.getScheduler().runTaskTimer(plugin,
+                    () -> flusher.execute(this::syncJournal), flushInterval, flushInterval);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (journalSyncTask != null) {
+            journalSyncTask.cancel();
+            journalSyncTask = null;
+        }
+
+        flusher.stop();
+
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to close lottery journal", e);
+            }
+        }
+    }
+
+    @Override
+    public void flush() {
+        flusher.flushNow();
+    }
+
+    @Override
+    public void recordEntry(String currencyId, UUID playerId, long amount) {
+        record(j -> j.appendEntry(currencyId, playerId, amount));
+    }
+
+    @Override
+    public void recordEntries(String currencyId, Map<UUID, Long> amounts) {
+        record(j -> j.appendEntries(currencyId, amounts));
+    }
+
+    @Override
+    public void recordDraw(DrawResult result) {
+        record(j -> j.appendDraw(result.getCurrencyId(), result.getWinnerId(), result.getPrize()));
+
+        String line = result.getTimestamp() + "," + result.getCurrencyId() + "," + result.getWinnerId() + "," +
+                result.getPrize() + System.lineSeparator();
+        flusher.execute(() -> {
+            try {
+                Files.write(historyFile.toPath(), line.getBytes(StandardCharsets.UTF_8),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to append lottery history", e);
+            }
+        });
+    }
+
+    @Override
+    public void recordClear(String currencyId) {
+        record(j -> j.appendClear(currencyId));
+    }
+
+    @Override
+    public void recordSchedule(LocalDateTime nextDrawingTime) {
+        record(j -> j.appendSchedule(nextDrawingTime.toEpochSecond(ZoneOffset.UTC)));
+    }
+
+    @Override
+    public void storeOfflineRewards(Map<UUID, List<OfflineReward>> rewards) {
+        if (rewards.isEmpty()) {
+            return;
+        }
+
+        // IDs are assigned now; the append happens on the I/O thread
+        String lines = offlineRewards.add(rewards);
+        flusher.execute(() -> {
+            try {
+                offlineRewards.write(lines);
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to store offline rewards", e);
+            }
+        });
+    }
+
+    @Override
+    public List<OfflineReward> readOfflineRewards(UUID playerId) {
+        return offlineRewards.read(playerId);
+    }
+
+    @Override
+    public void claimOfflineRewards(UUID playerId, List<OfflineReward> rewards) {
+        String lines = offlineRewards.claim(playerId, rewards);
+        flusher.execute(() -> {
+            try {
+                offlineRewards.write(lines);
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to record claimed offline rewards for " + playerId, e);
+            }
+        });
+    }
+
+    @Override
+    public void releaseOfflineRewards(UUID playerId, List<OfflineReward> rewards) {
+        offlineRewards.release(playerId, rewards);
+    }
+
+    @Override
+    public List<DrawResult> getHistory(int limit) throws IOException {
+        if (!historyFile.exists()) {
+            return Collections.emptyList();
+        }
+
+        List<String> lines = Files.readAllLines(historyFile.toPath(), StandardCharsets.UTF_8);
+        List<DrawResult> results = new ArrayList<>();
+
+        for (int i = lines.size() - 1; i >= 0 && results.size() < limit; i--) {
+            String[] parts = lines.get(i).split(",");
+            if (parts.length != 4) {
+                continue;
+            }
+
+            try {
+                results.add(new DrawResult(parts[1], UUID.fromString(parts[2]), Long.parseLong(parts[3]),
+                        Long.parseLong(parts[0])));
+            } catch (IllegalArgumentException e) {
+                plugin.getLogger().warning("Invalid line in lottery history: " + lines.get(i));
+            }
+        }
+
+        return results;
+    }
+
+    @Override
+    public List<UUID> getOfflineRewardOwners() {
+        return offlineRewards.owners();
+    }
+
+    /**
+     * Convert a data file left in the other snapshot format to the configured one.
+     * @throws IOException If the conversion failed
+     */
+    private void migrateDataFile() throws IOException {
+        if (dataFile.exists()) {
+            return;
+        }
+
+        SnapshotFormat otherFormat = snapshotFormat instanceof BinarySnapshotFormat
+                ? new YamlSnapshotFormat()
+                : new BinarySnapshotFormat();
+        File otherFile = new File(plugin.getDataFolder(), otherFormat.getFileName());
+
+        if (otherFile.exists()) {
+            SnapshotMigrator.migrate(otherFile, otherFormat, dataFile, snapshotFormat, plugin.getLogger());
+        }
+    }
+
+    /**
+     * Record a change in the journal, or mark the data file dirty when not journaling.
+     * @param write The journal write
+     */
+    private void record(JournalWrite write) {
+        if (journal == null || !journal.isOpen()) {
+            flusher.markDirty();
+            return;
+        }
+
+        try {
+            write.append(journal);
+
+            // Compact into a fresh snapshot on the next flush
+            if (journal.size() >= journalCompactThreshold) {
+                flusher.markDirty();
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to append to lottery journal", e);
+            flusher.markDirty();
+        }
+    }
+
+    private void syncJournal() {
+        try {
+            journal.sync();
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to sync lottery journal", e);
+        }
+    }
+
+    /**
+     * Take a snapshot of the state that is persisted.
+     * In journal mode this starts a new segment, so the snapshot covers every earlier one.
+     * Only the segment number is taken here; the segment files are switched on the I/O thread.
+     * @return The snapshot
+     */
+    private LotteryState createSnapshot() {
+        long journalSegment = 0;
+        if (journal != null) {
+            try {
+                if (journal.isOpen()) {
+                    journalSegment = journal.rotate();
+
+                    // Runs ahead of the snapshot write, so the old segment is closed before it is deleted
+                    flusher.execute(this::syncJournal);
+                } else {
+                    journalSegment = EntryJournal.nextSegment(journalFolder);
+                }
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to rotate lottery journal", e);
+                journalSegment = journal.getSegment();
+            }
+        }
+
+        return stateSupplier.get().withJournalSegment(journalSegment);
+    }
+
+    /**
+     * Drop journal segments that a written snapshot has made redundant.
+     * @param state The snapshot that was written
+     */
+    private void onSnapshotWritten(LotteryState state) {
+        EntryJournal.deleteSegmentsBefore(journalFolder, journal != null ? state.getJournalSegment() : Long.MAX_VALUE);
+    }
+
+    @FunctionalInterface
+    private interface JournalWrite {
+        void append(EntryJournal journal) throws IOException;
+    }
+
+    /**
+     * Applies replayed journal records on top of a loaded snapshot.
+     */
+    private static class JournalReplayer implements EntryJournal.Handler {
+        private final Map<String, EntryLedger> entries = new LinkedHashMap<>();
+        private LocalDateTime nextDrawingTime;
+
+        JournalReplayer(LotteryState state) {
+            nextDrawingTime = state.getNextDrawingTime();
+            for (Map.Entry<String, LedgerSnapshot> entry : state.getEntries().entrySet()) {
+                EntryLedger ledger = new EntryLedger(entry.getValue().size());
+                entry.getValue().forEach(ledger::add);
+                entries.put(entry.getKey(), ledger);
+            }
+        }
+
+        @Override
+        public void entry(String currencyId, UUID playerId, long amount) {
+            entries.computeIfAbsent(currencyId, id -> new EntryLedger()).add(playerId, amount);
+        }
+
+        @Override
+        public void draw(String currencyId, UUID winnerId, long prize) {
+            // Draw results are kept in the history log; the following clear resets the pool
+        }
+
+        @Override
+        public void clear(String currencyId) {
+            EntryLedger ledger = entries.get(currencyId);
+            if (ledger != null) {
+                ledger.clear();
+            }
+        }
+
+        @Override
+        public void schedule(long epochSecond) {
+            nextDrawingTime = LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+        }
+
+        LotteryState toState(long journalSegment) {
+            Map<String, LedgerSnapshot> snapshots = new LinkedHashMap<>();
+            for (Map.Entry<String, EntryLedger> entry : entries.entrySet()) {
+                snapshots.put(entry.getKey(), entry.getValue().snapshot());
+            }
+            return new LotteryState(nextDrawingTime, snapshots, journalSegment);
+        }
+    }
+}
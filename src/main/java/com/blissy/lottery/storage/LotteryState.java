@@ -0,0 +1,68 @@
+package com.blissy.lottery.storage;
+
+import com.blissy.lottery.ledger.LedgerSnapshot;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable point-in-time copy of the persisted lottery state.
+ */
+public final class LotteryState {
+    private final LocalDateTime nextDrawingTime;
+    private final Map<String, LedgerSnapshot> entries;
+    private final long journalSegment;
+
+    public LotteryState(LocalDateTime nextDrawingTime, Map<String, LedgerSnapshot> entries) {
+        this(nextDrawingTime, entries, 0L);
+    }
+
+    public LotteryState(LocalDateTime nextDrawingTime, Map<String, LedgerSnapshot> entries, long journalSegment) {
+        this.nextDrawingTime = nextDrawingTime;
+        this.entries = Collections.unmodifiableMap(new LinkedHashMap<>(entries));
+        this.journalSegment = journalSegment;
+    }
+
+    /**
+     * Get the next drawing time.
+     * @return The next drawing time, or null if none was stored
+     */
+    public LocalDateTime getNextDrawingTime() {
+        return nextDrawingTime;
+    }
+
+    /**
+     * Get the entries for every currency.
+     * @return Map of currency IDs to ledger snapshots
+     */
+    public Map<String, LedgerSnapshot> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Check if the state has no entries in any currency.
+     * @return True if every pool is empty
+     */
+    public boolean hasNoEntries() {
+        return entries.values().stream().allMatch(snapshot -> snapshot.size() == 0);
+    }
+
+    /**
+     * Copy this state with a different journal position.
+     * @param segment The first journal segment not covered by the copy
+     * @return The copy
+     */
+    public LotteryState withJournalSegment(long segment) {
+        return new LotteryState(nextDrawingTime, entries, segment);
+    }
+
+    /**
+     * Get the first journal segment that is not part of this state.
+     * @return The segment number, or 0 if no journal was in use
+     */
+    public long getJournalSegment() {
+        return journalSegment;
+    }
+}
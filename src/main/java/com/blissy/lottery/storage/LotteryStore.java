@@ -0,0 +1,136 @@
+package com.blissy.lottery.storage;
+
+import com.blissy.lottery.draw.DrawResult;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Persistence backend for lottery entries, draw state, offline rewards and history.
+ * Record methods are called from the main thread and must not block on I/O;
+ * implementations queue or append the change and persist it in the background.
+ */
+public interface LotteryStore {
+    /**
+     * Load the persisted entries and draw state.
+     * @return The state
+     * @throws IOException If the state could not be read
+     */
+    LotteryState load() throws IOException;
+
+    /**
+     * Replace all persisted entries and draw state.
+     * @param state The state to store
+     * @throws IOException If the state could not be written
+     */
+    void importState(LotteryState state) throws IOException;
+
+    /**
+     * Start background persistence.
+     */
+    void start();
+
+    /**
+     * Persist everything pending and stop background persistence.
+     */
+    void stop();
+
+    /**
+     * Persist everything pending, waiting for it to complete.
+     */
+    void flush();
+
+    /**
+     * Record an accepted entry.
+     * @param currencyId The currency ID
+     * @param playerId The player UUID
+     * @param amount The amount entered
+     */
+    void recordEntry(String currencyId, UUID playerId, long amount);
+
+    /**
+     * Record a batch of accepted entries for one currency.
+     * @param currencyId The currency ID
+     * @param amounts The amount entered by each player
+     */
+    default void recordEntries(String currencyId, Map<UUID, Long> amounts) {
+        for (Map.Entry<UUID, Long> entry : amounts.entrySet()) {
+            recordEntry(currencyId, entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Record the result of a drawing.
+     * @param result The draw result
+     */
+    void recordDraw(DrawResult result);
+
+    /**
+     * Record that a currency's pool was cleared.
+     * @param currencyId The currency ID
+     */
+    void recordClear(String currencyId);
+
+    /**
+     * Record a new next drawing time.
+     * @param nextDrawingTime The next drawing time
+     */
+    void recordSchedule(LocalDateTime nextDrawingTime);
+
+    /**
+     * Store prizes for players who are offline, as a single write.
+     * @param rewards The rewards by player
+     */
+    void storeOfflineRewards(Map<UUID, List<OfflineReward>> rewards);
+
+    /**
+     * Store a prize for a player who is offline.
+     * @param playerId The player UUID
+     * @param reward The reward
+     */
+    default void storeOfflineReward(UUID playerId, OfflineReward reward) {
+        storeOfflineRewards(Collections.singletonMap(playerId, Collections.singletonList(reward)));
+    }
+
+    /**
+     * Read every stored prize for a player and hold them until they are claimed or released.
+     * Held prizes stay in storage, so a crash can't lose them, but no other read returns them.
+     * @param playerId The player UUID
+     * @return The rewards, oldest first
+     * @throws IOException If the rewards could not be read
+     */
+    List<OfflineReward> readOfflineRewards(UUID playerId) throws IOException;
+
+    /**
+     * Remove held prizes from storage, after they were paid or stored again.
+     * @param playerId The player UUID
+     * @param rewards The rewards, as returned by {@link #readOfflineRewards(UUID)}
+     */
+    void claimOfflineRewards(UUID playerId, List<OfflineReward> rewards);
+
+    /**
+     * Make held prizes readable again without paying them.
+     * @param playerId The player UUID
+     * @param rewards The rewards, as returned by {@link #readOfflineRewards(UUID)}
+     */
+    void releaseOfflineRewards(UUID playerId, List<OfflineReward> rewards);
+
+    /**
+     * List the players that have stored prizes waiting.
+     * @return The player UUIDs
+     * @throws IOException If the rewards could not be read
+     */
+    List<UUID> getOfflineRewardOwners() throws IOException;
+
+    /**
+     * Get the most recent draw results.
+     * @param limit The maximum number of results
+     * @return The results, newest first
+     * @throws IOException If the history could not be read
+     */
+    List<DrawResult> getHistory(int limit) throws IOException;
+}
@@ -0,0 +1,54 @@
+package com.blissy.lottery.storage;
+
+/**
+ * A prize won by a player who was offline at the time of the drawing.
+ */
+public final class OfflineReward {
+    private final long id;
+    private final String currencyId;
+    private final long amount;
+    private final long timestamp;
+
+    public OfflineReward(String currencyId, long amount, long timestamp) {
+        this(0L, currencyId, amount, timestamp);
+    }
+
+    public OfflineReward(long id, String currencyId, long amount, long timestamp) {
+        this.id = id;
+        this.currencyId = currencyId;
+        this.amount = amount;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Get the ID the store gave the prize.
+     * @return The ID, or 0 if the prize has not been read from a store
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Get the ID of the currency the prize is paid in.
+     * @return The currency ID
+     */
+    public String getCurrencyId() {
+        return currencyId;
+    }
+
+    /**
+     * Get the prize amount.
+     * @return The amount
+     */
+    public long getAmount() {
+        return amount;
+    }
+
+    /**
+     * Get when the prize was won.
+     * @return The time in epoch milliseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
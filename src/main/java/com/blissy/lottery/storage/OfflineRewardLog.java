@@ -0,0 +1,285 @@
+package com.blissy.lottery.storage;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Append-only log of offline rewards, kept in a single file.
+ * Every reward gets a monotonically increasing ID. Reading a player's rewards
+ * holds them in memory; once they are paid, claiming them appends a claim line
+ * for each of their IDs, so nothing is ever rewritten in place. Claimed rewards are
+ * dropped from the file when it is loaded, and held ones are read again.
+ *
+ * Lines are one of:
+ * <pre>
+ * N,nextId
+ * R,id,uuid,currency,amount,timestamp
+ * C,uuid,id
+ * </pre>
+ */
+public class OfflineRewardLog {
+    private final File file;
+    private final Object writeLock = new Object();
+    private final Map<UUID, PendingRewards> pending = new HashMap<>();
+    private long nextId = 1;
+
+    public OfflineRewardLog(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Read the log, dropping claimed rewards.
+     * @param logger Logger for invalid lines
+     * @throws IOException If the log could not be read or compacted
+     */
+    public synchronized void load(Logger logger) throws IOException {
+        pending.clear();
+        nextId = 1;
+
+        if (!file.exists()) {
+            return;
+        }
+
+        Map<UUID, Set<Long>> claimed = new HashMap<>();
+        boolean compact = false;
+
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            String[] parts = line.split(",");
+
+            try {
+                if (parts.length == 2 && parts[0].equals("N")) {
+                    nextId = Math.max(nextId, Long.parseLong(parts[1]));
+                } else if (parts.length == 6 && parts[0].equals("R")) {
+                    long id = Long.parseLong(parts[1]);
+                    OfflineReward reward = new OfflineReward(id, parts[3], Long.parseLong(parts[4]),
+                            Long.parseLong(parts[5]));
+                    pending.computeIfAbsent(UUID.fromString(parts[2]), playerId -> new PendingRewards())
+                            .add(id, reward);
+                    nextId = Math.max(nextId, id + 1);
+                } else if (parts.length == 3 && parts[0].equals("C")) {
+                    claimed.computeIfAbsent(UUID.fromString(parts[1]), playerId -> new HashSet<>())
+                            .add(Long.parseLong(parts[2]));
+                    compact = true;
+                } else if (!line.isEmpty()) {
+                    logger.warning("Invalid line in offline rewards: " + line);
+                }
+            } catch (IllegalArgumentException e) {
+                logger.warning("Invalid line in offline rewards: " + line);
+            }
+        }
+
+        // Drop claimed rewards
+        for (Map.Entry<UUID, Set<Long>> claim : claimed.entrySet()) {
+            PendingRewards rewards = pending.get(claim.getKey());
+            if (rewards != null && rewards.removeAll(claim.getValue())) {
+                pending.remove(claim.getKey());
+            }
+        }
+
+        if (compact) {
+            AtomicFiles.write(file, encodeAll().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Add rewards, assigning their IDs.
+     * The returned lines must be passed to {@link #write(String)} to persist them.
+     * @param rewards The rewards by player
+     * @return The log lines for the rewards
+     */
+    public synchronized String add(Map<UUID, List<OfflineReward>> rewards) {
+        StringBuilder lines = new StringBuilder();
+
+        for (Map.Entry<UUID, List<OfflineReward>> entry : rewards.entrySet()) {
+            PendingRewards playerRewards = pending.computeIfAbsent(entry.getKey(), playerId -> new PendingRewards());
+
+            for (OfflineReward reward : entry.getValue()) {
+                long id = nextId++;
+                playerRewards.add(id, new OfflineReward(id, reward.getCurrencyId(), reward.getAmount(),
+                        reward.getTimestamp()));
+                lines.append("R,").append(id).append(',').append(entry.getKey()).append(',')
+                        .append(reward.getCurrencyId()).append(',').append(reward.getAmount()).append(',')
+                        .append(reward.getTimestamp()).append('\n');
+            }
+        }
+
+        return lines.toString();
+    }
+
+    /**
+     * Append lines to the log and sync them to the disk.
+     * @param lines The lines
+     * @throws IOException If the lines could not be written
+     */
+    public void write(String lines) throws IOException {
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8));
+        synchronized (writeLock) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+        }
+    }
+
+    /**
+     * Hold and return every reward for a player. They stay in the file until claimed.
+     * @param playerId The player UUID
+     * @return The rewards, oldest first
+     */
+    public synchronized List<OfflineReward> read(UUID playerId) {
+        PendingRewards rewards = pending.remove(playerId);
+        return rewards != null ? rewards.rewards : Collections.emptyList();
+    }
+
+    /**
+     * Get the claim lines for held rewards.
+     * Each reward is claimed by its own ID, since a player can hold several
+     * batches that are paid in any order.
+     * The returned lines must be passed to {@link #write(String)} to persist the claim.
+     * @param playerId The player UUID
+     * @param rewards The rewards returned by {@link #read(UUID)}
+     * @return The log lines for the claim
+     */
+    public String claim(UUID playerId, List<OfflineReward> rewards) {
+        StringBuilder lines = new StringBuilder();
+        for (OfflineReward reward : rewards) {
+            lines.append("C,").append(playerId).append(',').append(reward.getId()).append('\n');
+        }
+        return lines.toString();
+    }
+
+    /**
+     * Put held rewards back, to be read again.
+     * @param playerId The player UUID
+     * @param rewards The rewards returned by {@link #read(UUID)}
+     */
+    public synchronized void release(UUID playerId, List<OfflineReward> rewards) {
+        PendingRewards playerRewards = pending.computeIfAbsent(playerId, id -> new PendingRewards());
+        for (OfflineReward reward : rewards) {
+            playerRewards.add(reward.getId(), reward);
+        }
+    }
+
+    /**
+     * List the players that have rewards waiting.
+     * @return The player UUIDs
+     */
+    public synchronized List<UUID> owners() {
+        return new ArrayList<>(pending.keySet());
+    }
+
+    /**
+     * Move rewards from the old one-file-per-player layout into the log.
+     * @param folder The folder holding the old reward files
+     * @param logger Logger for invalid files
+     * @throws IOException If the rewards could not be written
+     */
+    public void importLegacy(File folder, Logger logger) throws IOException {
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(".yml"));
+        if (files == null || files.length == 0) {
+            return;
+        }
+
+        Map<UUID, List<OfflineReward>> rewards = new HashMap<>();
+        List<File> imported = new ArrayList<>();
+
+        for (File rewardFile : files) {
+            String name = rewardFile.getName();
+            UUID playerId;
+            try {
+                playerId = UUID.fromString(name.substring(0, name.length() - ".yml".length()));
+            } catch (IllegalArgumentException e) {
+                logger.warning("Invalid offline reward file: " + name);
+                continue;
+            }
+
+            YamlConfiguration config = YamlConfiguration.loadConfiguration(rewardFile);
+            List<OfflineReward> playerRewards = rewards.computeIfAbsent(playerId, id -> new ArrayList<>());
+            for (String key : config.getKeys(false)) {
+                playerRewards.add(new OfflineReward(
+                        config.getString(key + ".currency"),
+                        config.getLong(key + ".amount"),
+                        config.getLong(key + ".timestamp")));
+            }
+            imported.add(rewardFile);
+        }
+
+        write(add(rewards));
+
+        for (File rewardFile : imported) {
+            Files.delete(rewardFile.toPath());
+        }
+        logger.info("Moved offline rewards for " + imported.size() + " players into " + file.getName());
+    }
+
+    private String encodeAll() {
+        // Keep rewards in ID order
+        Map<Long, String> lines = new TreeMap<>();
+        for (Map.Entry<UUID, PendingRewards> entry : pending.entrySet()) {
+            PendingRewards rewards = entry.getValue();
+            for (int i = 0; i < rewards.rewards.size(); i++) {
+                OfflineReward reward = rewards.rewards.get(i);
+                long id = rewards.ids.get(i);
+                lines.put(id, "R," + id + "," + entry.getKey() + "," + reward.getCurrencyId() + "," +
+                        reward.getAmount() + "," + reward.getTimestamp() + "\n");
+            }
+        }
+
+        StringBuilder builder = new StringBuilder("N,").append(nextId).append('\n');
+        for (String line : lines.values()) {
+            builder.append(line);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * A player's unclaimed rewards and their IDs.
+     */
+    private static final class PendingRewards {
+        private final List<Long> ids = new ArrayList<>();
+        private final List<OfflineReward> rewards = new ArrayList<>();
+
+        void add(long id, OfflineReward reward) {
+            ids.add(id);
+            rewards.add(reward);
+        }
+
+        /**
+         * Remove the rewards with the given IDs.
+         * @return True if no rewards are left
+         */
+        boolean removeAll(Set<Long> claimedIds) {
+            for (int i = ids.size() - 1; i >= 0; i--) {
+                if (claimedIds.contains(ids.get(i))) {
+                    ids.remove(i);
+                    rewards.remove(i);
+                }
+            }
+            return ids.isEmpty();
+        }
+    }
+}
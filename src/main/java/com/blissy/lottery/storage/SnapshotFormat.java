@@ -0,0 +1,32 @@
+package com.blissy.lottery.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Logger;
+
+/**
+ * On-disk format of a full lottery state snapshot.
+ */
+public interface SnapshotFormat {
+    /**
+     * Get the name of the data file in the plugin folder.
+     * @return The file name
+     */
+    String getFileName();
+
+    /**
+     * Encode the lottery state.
+     * @param state The state
+     * @return The file contents
+     */
+    byte[] encode(LotteryState state);
+
+    /**
+     * Decode the lottery state from a file.
+     * @param file The file
+     * @param logger Logger for skipped entries
+     * @return The state
+     * @throws IOException If the file could not be read or is corrupt
+     */
+    LotteryState decode(File file, Logger logger) throws IOException;
+}
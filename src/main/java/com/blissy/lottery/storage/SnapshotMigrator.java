@@ -0,0 +1,41 @@
+package com.blissy.lottery.storage;
+
+import com.blissy.lottery.ledger.LedgerSnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.logging.Logger;
+
+/**
+ * One-shot conversion of a snapshot file between formats.
+ */
+public final class SnapshotMigrator {
+
+    private SnapshotMigrator() {
+    }
+
+    /**
+     * Convert a snapshot file to another format.
+     * The source file is kept with a ".migrated" suffix once the target is written.
+     * @param source The existing snapshot file
+     * @param sourceFormat The format of the existing file
+     * @param target The snapshot file to create
+     * @param targetFormat The format to convert to
+     * @param logger Logger for progress and skipped entries
+     * @throws IOException If the conversion failed; the source file is left untouched
+     */
+    public static void migrate(File source, SnapshotFormat sourceFormat, File target, SnapshotFormat targetFormat,
+                               Logger logger) throws IOException {
+        LotteryState state = sourceFormat.decode(source, logger);
+        AtomicFiles.write(target, targetFormat.encode(state));
+
+        File backup = new File(source.getParentFile(), source.getName() + ".migrated");
+        Files.move(source.toPath(), backup.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        int entries = state.getEntries().values().stream().mapToInt(LedgerSnapshot::size).sum();
+        logger.info("Migrated " + entries + " lottery entries from " + source.getName() + " to " +
+                target.getName() + " (original kept as " + backup.getName() + ")");
+    }
+}
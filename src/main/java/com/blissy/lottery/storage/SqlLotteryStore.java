@@ -0,0 +1,533 @@
+package com.blissy.lottery.storage;
+
+import com.blissy.lottery.Lottery;
+import com.blissy.lottery.draw.DrawResult;
+import com.blissy.lottery.ledger.EntryLedger;
+import com.blissy.lottery.ledger.LedgerSnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Store backed by an embedded SQLite database.
+ * Changes are queued from the main thread and written by a dedicated I/O thread
+ * in one transaction per flush, using prepared-statement batches, so storage is
+ * indexed and transactional without rewriting a file for each change.
+ */
+public class SqlLotteryStore implements LotteryStore {
+    private static final long DEFAULT_FLUSH_INTERVAL = 100; // ticks
+    private static final long MILLIS_PER_TICK = 50;
+
+    private static final int ENTRY = 0;
+    private static final int DRAW = 1;
+    private static final int CLEAR = 2;
+    private static final int SCHEDULE = 3;
+    private static final int REWARD = 4;
+    private static final int CLAIM = 5;
+
+    private static final String[] WRITE_SQL = {
+            "INSERT INTO lottery_entries (currency, uuid_hi, uuid_lo, amount) VALUES (?, ?, ?, ?) " +
+                    "ON CONFLICT (currency, uuid_hi, uuid_lo) DO UPDATE SET amount = amount + excluded.amount",
+            "INSERT INTO lottery_history (currency, uuid_hi, uuid_lo, prize, timestamp) VALUES (?, ?, ?, ?, ?)",
+            "DELETE FROM lottery_entries WHERE currency = ?",
+            "INSERT INTO lottery_state (name, value) VALUES ('next_drawing', ?) " +
+                    "ON CONFLICT (name) DO UPDATE SET value = excluded.value",
+            "INSERT INTO lottery_offline_rewards (uuid_hi, uuid_lo, currency, amount, timestamp) " +
+                    "VALUES (?, ?, ?, ?, ?)",
+            "DELETE FROM lottery_offline_rewards WHERE id = ?"
+    };
+
+    private final Lottery plugin;
+    private final File databaseFile;
+    private final long flushInterval;
+    private final ConcurrentLinkedDeque<PendingWrite> pending = new ConcurrentLinkedDeque<>();
+
+    // IDs of offline rewards that were read and not yet claimed or released
+    private final Set<Long> heldRewards = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService executor;
+    private Connection connection;
+
+    public SqlLotteryStore(Lottery plugin, File databaseFile) {
+        this.plugin = plugin;
+        this.databaseFile = databaseFile;
+        this.flushInterval = plugin.getConfig().getLong("storage.flush_interval", DEFAULT_FLUSH_INTERVAL);
+    }
+
+    @Override
+    public LotteryState load() throws IOException {
+        LotteryState state = call(this::readState);
+
+        // First start on this database: bring over what the file store had
+        if (state == null) {
+            state = importFileStore();
+        }
+
+        return state;
+    }
+
+    @Override
+    public void importState(LotteryState state) throws IOException {
+        call(() -> {
+            writeState(state);
+            return null;
+        });
+    }
+
+    @Override
+    public void start() {
+        long interval = Math.max(1, flushInterval) * MILLIS_PER_TICK;
+        executor().scheduleWithFixedDelay(this::drainPending, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (executor == null) {
+            return;
+        }
+
+        flush();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Timed out waiting for the lottery database");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.WARNING, "Failed to close the lottery database", e);
+            }
+            connection = null;
+        }
+    }
+
+    @Override
+    public void flush() {
+        try {
+            call(() -> {
+                drainPending();
+                return null;
+            });
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to flush lottery data", e);
+        }
+    }
+
+    @Override
+    public void recordEntry(String currencyId, UUID playerId, long amount) {
+        pending.add(new PendingWrite(ENTRY, currencyId, playerId, amount, 0L, null));
+    }
+
+    @Override
+    public void recordDraw(DrawResult result) {
+        pending.add(new PendingWrite(DRAW, result.getCurrencyId(), result.getWinnerId(), result.getPrize(),
+                result.getTimestamp(), null));
+    }
+
+    @Override
+    public void recordClear(String currencyId) {
+        pending.add(new PendingWrite(CLEAR, currencyId, null, 0L, 0L, null));
+    }
+
+    @Override
+    public void recordSchedule(LocalDateTime nextDrawingTime) {
+        pending.add(new PendingWrite(SCHEDULE, null, null, 0L, 0L, nextDrawingTime.toString()));
+    }
+
+    @Override
+    public void storeOfflineRewards(Map<UUID, List<OfflineReward>> rewards) {
+        for (Map.Entry<UUID, List<OfflineReward>> entry : rewards.entrySet()) {
+            for (OfflineReward reward : entry.getValue()) {
+                pending.add(new PendingWrite(REWARD, reward.getCurrencyId(), entry.getKey(), reward.getAmount(),
+                        reward.getTimestamp(), null));
+            }
+        }
+    }
+
+    @Override
+    public List<OfflineReward> readOfflineRewards(UUID playerId) throws IOException {
+        return call(() -> {
+            drainPending();
+
+            List<OfflineReward> rewards = new ArrayList<>();
+            try (PreparedStatement select = connection().prepareStatement(
+                    "SELECT id, currency, amount, timestamp FROM lottery_offline_rewards " +
+                            "WHERE uuid_hi = ? AND uuid_lo = ? ORDER BY id")) {
+                select.setLong(1, playerId.getMostSignificantBits());
+                select.setLong(2, playerId.getLeastSignificantBits());
+                try (ResultSet results = select.executeQuery()) {
+                    while (results.next()) {
+                        // Skip rewards an earlier read is still paying out
+                        if (heldRewards.add(results.getLong(1))) {
+                            rewards.add(new OfflineReward(results.getLong(1), results.getString(2),
+                                    results.getLong(3), results.getLong(4)));
+                        }
+                    }
+                }
+            }
+            return rewards;
+        });
+    }
+
+    @Override
+    public void claimOfflineRewards(UUID playerId, List<OfflineReward> rewards) {
+        for (OfflineReward reward : rewards) {
+            pending.add(new PendingWrite(CLAIM, null, playerId, reward.getId(), 0L, null));
+        }
+
+        // Reads write the queued deletes first, so the rewards can't be read again
+        for (OfflineReward reward : rewards) {
+            heldRewards.remove(reward.getId());
+        }
+    }
+
+    @Override
+    public void releaseOfflineRewards(UUID playerId, List<OfflineReward> rewards) {
+        for (OfflineReward reward : rewards) {
+            heldRewards.remove(reward.getId());
+        }
+    }
+
+    @Override
+    public List<UUID> getOfflineRewardOwners() throws IOException {
+        return call(() -> {
+            drainPending();
+
+            List<UUID> owners = new ArrayList<>();
+            try (Statement statement = connection().createStatement();
+                 ResultSet rows = statement.executeQuery(
+                         "SELECT DISTINCT uuid_hi, uuid_lo FROM lottery_offline_rewards")) {
+                while (rows.next()) {
+                    owners.add(new UUID(rows.getLong(1), rows.getLong(2)));
+                }
+            }
+            return owners;
+        });
+    }
+
+    @Override
+    public List<DrawResult> getHistory(int limit) throws IOException {
+        return call(() -> {
+            drainPending();
+
+            List<DrawResult> results = new ArrayList<>();
+            try (PreparedStatement select = connection().prepareStatement(
+                    "SELECT currency, uuid_hi, uuid_lo, prize, timestamp FROM lottery_history " +
+                            "ORDER BY id DESC LIMIT ?")) {
+                select.setInt(1, limit);
+                try (ResultSet rows = select.executeQuery()) {
+                    while (rows.next()) {
+                        results.add(new DrawResult(rows.getString(1), new UUID(rows.getLong(2), rows.getLong(3)),
+                                rows.getLong(4), rows.getLong(5)));
+                    }
+                }
+            }
+            return results;
+        });
+    }
+
+    /**
+     * Write every queued change in a single transaction.
+     * Runs on the I/O thread.
+     */
+    private void drainPending() {
+        List<PendingWrite> batch = new ArrayList<>();
+        PendingWrite write;
+        while ((write = pending.poll()) != null) {
+            batch.add(write);
+        }
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        PreparedStatement[] statements = new PreparedStatement[WRITE_SQL.length];
+        try {
+            Connection db = connection();
+            db.setAutoCommit(false);
+            try {
+                int batchedType = -1;
+
+                for (PendingWrite change : batch) {
+                    // Keep changes in order: run the previous batch before switching statements
+                    if (change.type != batchedType && batchedType >= 0) {
+                        statements[batchedType].executeBatch();
+                    }
+                    batchedType = change.type;
+
+                    if (statements[change.type] == null) {
+                        statements[change.type] = db.prepareStatement(WRITE_SQL[change.type]);
+                    }
+                    change.bind(statements[change.type]);
+                    statements[change.type].addBatch();
+                }
+
+                statements[batchedType].executeBatch();
+                db.commit();
+            } catch (SQLException e) {
+                db.rollback();
+                throw e;
+            } finally {
+                db.setAutoCommit(true);
+                for (PreparedStatement statement : statements) {
+                    if (statement != null) {
+                        statement.close();
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to write lottery data, will retry", e);
+
+            // Put the batch back in front of anything queued meanwhile
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                pending.addFirst(batch.get(i));
+            }
+        }
+    }
+
+    private LotteryState readState() throws SQLException {
+        Connection db = connection();
+        Map<String, String> values = new LinkedHashMap<>();
+
+        try (Statement statement = db.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT name, value FROM lottery_state")) {
+            while (rows.next()) {
+                values.put(rows.getString(1), rows.getString(2));
+            }
+        }
+
+        // Nothing has been imported into this database yet
+        if (!values.containsKey("created")) {
+            return null;
+        }
+
+        Map<String, EntryLedger> ledgers = new LinkedHashMap<>();
+        try (Statement statement = db.createStatement();
+             ResultSet rows = statement.executeQuery(
+                     "SELECT currency, uuid_hi, uuid_lo, amount FROM lottery_entries WHERE amount > 0")) {
+            while (rows.next()) {
+                ledgers.computeIfAbsent(rows.getString(1), id -> new EntryLedger())
+                        .add(rows.getLong(2), rows.getLong(3), rows.getLong(4));
+            }
+        }
+
+        Map<String, LedgerSnapshot> snapshots = new LinkedHashMap<>();
+        for (Map.Entry<String, EntryLedger> entry : ledgers.entrySet()) {
+            snapshots.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        String nextDrawing = values.get("next_drawing");
+        return new LotteryState(nextDrawing != null ? LocalDateTime.parse(nextDrawing) : null, snapshots);
+    }
+
+    private void writeState(LotteryState state) throws SQLException {
+        Connection db = connection();
+        db.setAutoCommit(false);
+        try (Statement clear = db.createStatement();
+             PreparedStatement insert = db.prepareStatement(WRITE_SQL[ENTRY]);
+             PreparedStatement schedule = db.prepareStatement(WRITE_SQL[SCHEDULE])) {
+            clear.executeUpdate("DELETE FROM lottery_entries");
+            clear.executeUpdate("INSERT OR IGNORE INTO lottery_state (name, value) VALUES ('created', '" +
+                    System.currentTimeMillis() + "')");
+
+            for (Map.Entry<String, LedgerSnapshot> entry : state.getEntries().entrySet()) {
+                LedgerSnapshot snapshot = entry.getValue();
+                for (int i = 0; i < snapshot.size(); i++) {
+                    insert.setString(1, entry.getKey());
+                    insert.setLong(2, snapshot.mostSigBits(i));
+                    insert.setLong(3, snapshot.leastSigBits(i));
+                    insert.setLong(4, snapshot.amount(i));
+                    insert.addBatch();
+                }
+            }
+            insert.executeBatch();
+
+            if (state.getNextDrawingTime() != null) {
+                schedule.setString(1, state.getNextDrawingTime().toString());
+                schedule.executeUpdate();
+            }
+            db.commit();
+        } catch (SQLException e) {
+            db.rollback();
+            throw e;
+        } finally {
+            db.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Copy entries, draw state and offline rewards from the file store.
+     * @return The imported state
+     * @throws IOException If the file store could not be read
+     */
+    private LotteryState importFileStore() throws IOException {
+        FileLotteryStore fileStore = new FileLotteryStore(plugin, () -> {
+            throw new IllegalStateException("File store is read-only during import");
+        });
+        LotteryState state = fileStore.load();
+
+        Map<UUID, List<OfflineReward>> rewards = new LinkedHashMap<>();
+        for (UUID playerId : fileStore.getOfflineRewardOwners()) {
+            rewards.put(playerId, fileStore.readOfflineRewards(playerId));
+        }
+        storeOfflineRewards(rewards);
+
+        importState(state);
+        if (state.getNextDrawingTime() != null || !state.hasNoEntries()) {
+            plugin.getLogger().info("Imported lottery data from files into " + databaseFile.getName());
+        }
+
+        flush();
+
+        // Only remove the rewards from the files once the database has them
+        for (Map.Entry<UUID, List<OfflineReward>> entry : rewards.entrySet()) {
+            fileStore.claimOfflineRewards(entry.getKey(), entry.getValue());
+        }
+        return state;
+    }
+
+    private Connection connection() throws SQLException {
+        if (connection == null) {
+            try {
+                Class.forName("org.sqlite.JDBC");
+            } catch (ClassNotFoundException e) {
+                throw new SQLException("SQLite driver is not available", e);
+            }
+
+            connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode = WAL");
+                statement.execute("PRAGMA synchronous = NORMAL");
+                statement.execute("CREATE TABLE IF NOT EXISTS lottery_entries (" +
+                        "currency TEXT NOT NULL, uuid_hi INTEGER NOT NULL, uuid_lo INTEGER NOT NULL, " +
+                        "amount INTEGER NOT NULL, PRIMARY KEY (currency, uuid_hi, uuid_lo))");
+                statement.execute("CREATE TABLE IF NOT EXISTS lottery_state (" +
+                        "name TEXT PRIMARY KEY, value TEXT NOT NULL)");
+                statement.execute("CREATE TABLE IF NOT EXISTS lottery_offline_rewards (" +
+                        "id INTEGER PRIMARY KEY AUTOINCREMENT, uuid_hi INTEGER NOT NULL, uuid_lo INTEGER NOT NULL, " +
+                        "currency TEXT NOT NULL, amount INTEGER NOT NULL, timestamp INTEGER NOT NULL)");
+                statement.execute("CREATE INDEX IF NOT EXISTS lottery_offline_rewards_player " +
+                        "ON lottery_offline_rewards (uuid_hi, uuid_lo)");
+                statement.execute("CREATE TABLE IF NOT EXISTS lottery_history (" +
+                        "id INTEGER PRIMARY KEY AUTOINCREMENT, currency TEXT NOT NULL, uuid_hi INTEGER NOT NULL, " +
+                        "uuid_lo INTEGER NOT NULL, prize INTEGER NOT NULL, timestamp INTEGER NOT NULL)");
+            }
+        }
+        return connection;
+    }
+
+    private synchronized ScheduledExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "PSLottery-SQL");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Run a database task on the I/O thread and wait for it.
+     * Calls made from the I/O thread itself run directly.
+     */
+    private <T> T call(Callable<T> task) throws IOException {
+        try {
+            if (Thread.currentThread().getName().equals("PSLottery-SQL")) {
+                return task.call();
+            }
+            return executor().submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for the lottery database", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Lottery database operation failed", e.getCause());
+        } catch (Exception e) {
+            throw new IOException("Lottery database operation failed", e);
+        }
+    }
+
+    /**
+     * A change waiting to be written.
+     */
+    private static final class PendingWrite {
+        private final int type;
+        private final String currencyId;
+        private final UUID playerId;
+        private final long amount;
+        private final long timestamp;
+        private final String value;
+
+        PendingWrite(int type, String currencyId, UUID playerId, long amount, long timestamp, String value) {
+            this.type = type;
+            this.currencyId = currencyId;
+            this.playerId = playerId;
+            this.amount = amount;
+            this.timestamp = timestamp;
+            this.value = value;
+        }
+
+        void bind(PreparedStatement statement) throws SQLException {
+            switch (type) {
+                case ENTRY:
+                    statement.setString(1, currencyId);
+                    statement.setLong(2, playerId.getMostSignificantBits());
+                    statement.setLong(3, playerId.getLeastSignificantBits());
+                    statement.setLong(4, amount);
+                    break;
+                case DRAW:
+                    statement.setString(1, currencyId);
+                    statement.setLong(2, playerId.getMostSignificantBits());
+                    statement.setLong(3, playerId.getLeastSignificantBits());
+                    statement.setLong(4, amount);
+                    statement.setLong(5, timestamp);
+                    break;
+                case CLEAR:
+                    statement.setString(1, currencyId);
+                    break;
+                case SCHEDULE:
+                    statement.setString(1, value);
+                    break;
+                case REWARD:
+                    statement.setLong(1, playerId.getMostSignificantBits());
+                    statement.setLong(2, playerId.getLeastSignificantBits());
+                    statement.setString(3, currencyId);
+                    statement.setLong(4, amount);
+                    statement.setLong(5, timestamp);
+                    break;
+                case CLAIM:
+                    // The amount holds the reward ID
+                    statement.setLong(1, amount);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown write type " + type);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.blissy.lottery.storage;
+
+import com.blissy.lottery.Lottery;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Write-behind persistence for the lottery state.
+ * Changes only mark the state dirty; a periodic task snapshots it on the main
+ * thread and hands the snapshot to a single I/O thread, which serializes it and
+ * atomically replaces the data file. Many changes between flushes coalesce into
+ * a single write.
+ */
+public class WriteBehindFlusher {
+    private final Lottery plugin;
+    private final File dataFile;
+    private final SnapshotFormat format;
+    private final Supplier<LotteryState> snapshotter;
+    private final Consumer<LotteryState> afterWrite;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    private ExecutorService executor;
+    private BukkitTask flushTask;
+
+    public WriteBehindFlusher(Lottery plugin, File dataFile, SnapshotFormat format,
+                              Supplier<LotteryState> snapshotter) {
+        this(plugin, dataFile, format, snapshotter, state -> { });
+    }
+
+    public WriteBehindFlusher(Lottery plugin, File dataFile, SnapshotFormat format,
+                              Supplier<LotteryState> snapshotter, Consumer<LotteryState> afterWrite) {
+        this.plugin = plugin;
+        this.dataFile = dataFile;
+        this.format = format;
+        this.snapshotter = snapshotter;
+        this.afterWrite = afterWrite;
+    }
+
+    /**
+     * Start the I/O thread and the periodic flush task.
+     * @param intervalTicks Ticks between dirty checks
+     */
+    public void start(long intervalTicks) {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "PSLottery-IO");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        if (flushTask == null) {
+            long interval = Math.max(1, intervalTicks);
+            flushTask = Bukkit.getScheduler().runTaskTimer(plugin, this::flush, interval, interval);
+        }
+    }
+
+    /**
+     * Flush any pending changes and stop the I/O thread.
+     */
+    public void stop() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+
+        if (dirty.get()) {
+            flushNow();
+        }
+
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    plugin.getLogger().warning("Timed out waiting for lottery data to be written");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+    }
+
+    /**
+     * Mark the state as changed so the next flush writes it.
+     */
+    public void markDirty() {
+        dirty.set(true);
+    }
+
+    /**
+     * Run a task on the I/O thread, or on the calling thread if it is not running.
+     * @param task The task
+     */
+    public void execute(Runnable task) {
+        if (executor == null) {
+            task.run();
+        } else {
+            executor.execute(task);
+        }
+    }
+
+    /**
+     * Write the state in the background if it has changed since the last flush.
+     * Must be called from the main thread.
+     */
+    public void flush() {
+        if (executor == null || !dirty.getAndSet(false)) {
+            return;
+        }
+
+        LotteryState state = snapshotter.get();
+        executor.execute(() -> write(state));
+    }
+
+    /**
+     * Write the state now and wait for it to reach the disk.
+     * Must be called from the main thread.
+     */
+    public void flushNow() {
+        dirty.set(false);
+        LotteryState state = snapshotter.get();
+
+        if (executor == null) {
+            write(state);
+            return;
+        }
+
+        // Queue behind any in-flight write so the newest snapshot lands last
+        Future<?> future = executor.submit(() -> write(state));
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to save lottery data", e.getCause());
+        }
+    }
+
+    private void write(LotteryState state) {
+        try {
+            AtomicFiles.write(dataFile, format.encode(state));
+            afterWrite.accept(state);
+        } catch (IOException e) {
+            // Retry on the next flush
+            dirty.set(true);
+            plugin.getLogger().log(Level.SEVERE, "Failed to save lottery data", e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.blissy.lottery.storage;
+
+import com.blissy.lottery.ledger.EntryLedger;
+import com.blissy.lottery.ledger.LedgerSnapshot;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Reads and writes the lottery state in the lottery_data.yml format.
+ */
+public class YamlSnapshotFormat implements SnapshotFormat {
+
+    @Override
+    public String getFileName() {
+        return "lottery_data.yml";
+    }
+
+    @Override
+    public byte[] encode(LotteryState state) {
+        YamlConfiguration config = new YamlConfiguration();
+
+        // Save next drawing time
+        if (state.getNextDrawingTime() != null) {
+            config.set("next_drawing", state.getNextDrawingTime().toString());
+        }
+
+        // Save the journal position this snapshot covers
+        if (state.getJournalSegment() > 0) {
+            config.set("journal_segment", state.getJournalSegment());
+        }
+
+        // Save entries
+        for (Map.Entry<String, LedgerSnapshot> entry : state.getEntries().entrySet()) {
+            String currencyId = entry.getKey();
+            LedgerSnapshot snapshot = entry.getValue();
+            if (snapshot.size() == 0) {
+                continue;
+            }
+
+            ConfigurationSection currencySection = config.createSection("entries." + currencyId);
+            for (int i = 0; i < snapshot.size(); i++) {
+                currencySection.set(snapshot.playerId(i).toString(), snapshot.amount(i));
+            }
+        }
+
+        return config.saveToString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public LotteryState decode(File file, Logger logger) {
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
+
+        // Load next drawing time
+        LocalDateTime nextDrawingTime = null;
+        String timeStr = config.getString("next_drawing");
+        if (timeStr != null) {
+            nextDrawingTime = LocalDateTime.parse(timeStr);
+        }
+
+        // Load entries
+        Map<String, LedgerSnapshot> entries = new LinkedHashMap<>();
+        ConfigurationSection entriesSection = config.getConfigurationSection("entries");
+        if (entriesSection != null) {
+            for (String currencyId : entriesSection.getKeys(false)) {
+                ConfigurationSection currencySection = entriesSection.getConfigurationSection(currencyId);
+                if (currencySection == null) {
+                    continue;
+                }
+
+                EntryLedger ledger = new EntryLedger(currencySection.getKeys(false).size());
+                for (String playerIdStr : currencySection.getKeys(false)) {
+                    try {
+                        UUID playerId = UUID.fromString(playerIdStr);
+                        long amount = currencySection.getLong(playerIdStr);
+                        if (amount > 0) {
+                            ledger.add(playerId, amount);
+                        }
+                    } catch (IllegalArgumentException e) {
+                        logger.warning("Invalid UUID in lottery data: " + playerIdStr);
+                    }
+                }
+                entries.put(currencyId, ledger.snapshot());
+            }
+        }
+
+        return new LotteryState(nextDrawingTime, entries, config.getLong("journal_segment", 0L));
+    }
+}
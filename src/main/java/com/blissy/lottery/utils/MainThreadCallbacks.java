@@ -0,0 +1,91 @@
+package com.blissy.lottery.utils;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs the results of asynchronous operations on the main thread.
+ * Keeps track of operations still in flight, so shutdown can wait for them and
+ * run their callbacks instead of losing them with the scheduler.
+ */
+public class MainThreadCallbacks {
+    private final Plugin plugin;
+    private final Set<CompletableFuture<?>> pending = ConcurrentHashMap.newKeySet();
+    private final Queue<Runnable> ready = new ConcurrentLinkedQueue<>();
+
+    public MainThreadCallbacks(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Run a callback on the main thread once a future completes.
+     * Runs inline if the future completes on the main thread.
+     * @param future The future
+     * @param callback Receives the result, or the error if it failed
+     * @param <T> The result type
+     */
+    public <T> void whenDone(CompletableFuture<T> future, BiConsumer<? super T, ? super Throwable> callback) {
+        pending.add(future);
+        future.whenComplete((result, error) -> {
+            ready.add(() -> callback.accept(result, error));
+            pending.remove(future);
+
+            if (Bukkit.isPrimaryThread()) {
+                runReady();
+            } else if (plugin.isEnabled()) {
+                Bukkit.getScheduler().runTask(plugin, this::runReady);
+            }
+        });
+    }
+
+    /**
+     * Wait for the operations in flight and run their callbacks on this thread,
+     * for use when the plugin is shutting down. Operations started by those
+     * callbacks are waited for too.
+     * @param timeoutMillis The longest to wait
+     */
+    public void finish(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        while (!pending.isEmpty() || !ready.isEmpty()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                plugin.getLogger().warning("Timed out waiting for " + pending.size() + " currency operations");
+                break;
+            }
+
+            try {
+                CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0]))
+                        .get(remaining, TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                // Failures are passed to the callbacks
+            } catch (TimeoutException e) {
+                // Checked again at the top of the loop
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            runReady();
+        }
+
+        runReady();
+    }
+
+    private void runReady() {
+        Runnable callback;
+        while ((callback = ready.poll()) != null) {
+            callback.run();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.blissy.lottery.utils;
+
+import org.bukkit.ChatColor;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-player token buckets limiting how often each kind of action can be used.
+ * Each bucket is kept as the single time at which it would be full again, so
+ * taking a token is one comparison and one addition; a player's buckets are
+ * allocated on their first action and reused until they leave.
+ *
+ * Main thread only.
+ */
+public class RateLimiter {
+    /**
+     * The kinds of limited action.
+     */
+    public enum Action {
+        ENTER("enter", 3, 1),
+        MENU_CLICK("menu_click", 10, 5);
+
+        private final String key;
+        private final int defaultBurst;
+        private final double defaultRefill;
+
+        Action(String key, int defaultBurst, double defaultRefill) {
+            this.key = key;
+            this.defaultBurst = defaultBurst;
+            this.defaultRefill = defaultRefill;
+        }
+    }
+
+    private static final Action[] ACTIONS = Action.values();
+
+    private final long[] refillNanos = new long[ACTIONS.length]; // time to earn one token, 0 if unlimited
+    private final long[] burstNanos = new long[ACTIONS.length]; // time to fill an empty bucket
+    private final String message;
+
+    // Per player: the time each bucket is full again, then whether the player was told since their last action
+    private final Map<UUID, long[]> buckets = new HashMap<>();
+
+    /**
+     * Create a limiter from the rate_limits config section.
+     * @param config The plugin config
+     */
+    public RateLimiter(FileConfiguration config) {
+        for (Action action : ACTIONS) {
+            String path = "rate_limits." + action.key;
+            int burst = config.getInt(path + ".burst", action.defaultBurst);
+            double refill = config.getDouble(path + ".refill_per_second", action.defaultRefill);
+
+            if (burst > 0 && refill > 0) {
+                refillNanos[action.ordinal()] = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / refill));
+                burstNanos[action.ordinal()] = refillNanos[action.ordinal()] * burst;
+            }
+        }
+
+        this.message = ChatColor.translateAlternateColorCodes('&', config.getString(
+                "rate_limits.message", "&cYou're doing that too fast, please slow down."));
+    }
+
+    /**
+     * Take a token for an action, telling the player once if none is left.
+     * @param player The player
+     * @param action The action
+     * @return True if the action may go ahead, false if it should be dropped
+     */
+    public boolean tryAcquire(Player player, Action action) {
+        int index = action.ordinal();
+        long refill = refillNanos[index];
+        if (refill == 0) {
+            return true;
+        }
+
+        long now = System.nanoTime();
+        long[] state = buckets.get(player.getUniqueId());
+        if (state == null) {
+            state = new long[ACTIONS.length * 2];
+            Arrays.fill(state, 0, ACTIONS.length, now);
+            buckets.put(player.getUniqueId(), state);
+        }
+
+        // A bucket that filled up in the past is just full
+        long fullAt = state[index] - now > 0 ? state[index] : now;
+
+        if (fullAt + refill - now > burstNanos[index]) {
+            // Only the first rejection in a row is worth a message
+            if (state[ACTIONS.length + index] == 0) {
+                state[ACTIONS.length + index] = 1;
+                player.sendMessage(message);
+            }
+            return false;
+        }
+
+        state[index] = fullAt + refill;
+        state[ACTIONS.length + index] = 0;
+        return true;
+    }
+
+    /**
+     * Forget a player's buckets, after they left.
+     * @param playerId The player UUID
+     */
+    public void forget(UUID playerId) {
+        buckets.remove(playerId);
+    }
+}
@@ -0,0 +1,89 @@
+package com.blissy.lottery.utils;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a queue of main-thread tasks spread over several ticks.
+ * Each tick runs tasks until its time budget is used up, always running at
+ * least one so the queue keeps moving.
+ */
+public class TickBudgetRunner extends BukkitRunnable {
+    private final Queue<Runnable> tasks;
+    private final long budgetNanos;
+    private final Runnable onComplete;
+    private boolean completed;
+
+    /**
+     * Create a runner.
+     * @param tasks The tasks, in order
+     * @param budgetMillis Milliseconds per tick to spend on tasks
+     * @param onComplete Run once every task has run
+     */
+    public TickBudgetRunner(Collection<Runnable> tasks, long budgetMillis, Runnable onComplete) {
+        this.tasks = new ArrayDeque<>(tasks);
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, budgetMillis));
+        this.onComplete = onComplete;
+    }
+
+    /**
+     * Start running the tasks from the next tick.
+     * @param plugin The plugin
+     * @return This runner
+     */
+    public TickBudgetRunner start(Plugin plugin) {
+        runTaskTimer(plugin, 1, 1);
+        return this;
+    }
+
+    @Override
+    public void run() {
+        long deadline = System.nanoTime() + budgetNanos;
+
+        do {
+            Runnable task = tasks.poll();
+            if (task == null) {
+                break;
+            }
+            task.run();
+        } while (System.nanoTime() < deadline);
+
+        if (tasks.isEmpty()) {
+            cancel();
+            complete();
+        }
+    }
+
+    /**
+     * Run every remaining task now, for use when the plugin is shutting down.
+     */
+    public void finish() {
+        if (completed) {
+            return;
+        }
+
+        try {
+            cancel();
+        } catch (IllegalStateException e) {
+            // Not scheduled yet
+        }
+
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+        complete();
+    }
+
+    private void complete() {
+        if (!completed) {
+            completed = true;
+            onComplete.run();
+        }
+    }
+}